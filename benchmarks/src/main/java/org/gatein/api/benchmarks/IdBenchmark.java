@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.gatein.api.page.PageId;
+import org.gatein.api.security.Group;
+import org.gatein.api.site.SiteId;
+
+/**
+ * Measures parsing site and page ids from each of their supported string formats.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdBenchmark {
+    @Param({ "alternate", "default", "toString" })
+    public String format;
+
+    private String siteId;
+    private String pageId;
+
+    @Setup
+    public void setup() {
+        PageId id = new PageId(new Group("platform", "administrators"), "pageManagement");
+        if ("alternate".equals(format)) {
+            siteId = String.format("%#s", id.getSiteId());
+            pageId = String.format("%#s", id);
+        } else if ("default".equals(format)) {
+            siteId = String.format("%s", id.getSiteId());
+            pageId = String.format("%s", id);
+        } else {
+            siteId = id.getSiteId().toString();
+            pageId = id.toString();
+        }
+    }
+
+    @Benchmark
+    public SiteId siteIdFromString() {
+        return SiteId.fromString(siteId);
+    }
+
+    @Benchmark
+    public PageId pageIdFromString() {
+        return PageId.fromString(pageId);
+    }
+}
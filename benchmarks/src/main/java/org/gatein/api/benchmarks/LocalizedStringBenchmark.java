@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.benchmarks;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.gatein.api.common.i18n.LocalizedString;
+
+/**
+ * Measures looking up localized display names.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalizedStringBenchmark {
+    private LocalizedString localized;
+    private LocalizedString nonLocalized;
+
+    @Setup
+    public void setup() {
+        Map<Locale, String> values = new HashMap<Locale, String>();
+        values.put(Locale.ENGLISH, "Home");
+        values.put(Locale.FRENCH, "Accueil");
+        values.put(Locale.GERMAN, "Startseite");
+        localized = new LocalizedString(values);
+        nonLocalized = new LocalizedString("Home");
+    }
+
+    @Benchmark
+    public String getValue() {
+        return localized.getValue(Locale.FRENCH);
+    }
+
+    @Benchmark
+    public String getValue_Missing() {
+        return localized.getValue(Locale.JAPANESE);
+    }
+
+    @Benchmark
+    public String getValue_NonLocalized() {
+        return nonLocalized.getValue();
+    }
+}
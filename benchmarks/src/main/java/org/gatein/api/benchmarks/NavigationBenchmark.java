@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.gatein.api.memory.InMemoryPortal;
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.NodePath;
+import org.gatein.api.navigation.Nodes;
+import org.gatein.api.site.SiteId;
+
+/**
+ * Measures looking up nodes by name in a category with different numbers of children.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NavigationBenchmark {
+    @Param({ "10", "3000" })
+    public int children;
+
+    private Node root;
+    private NodePath path;
+
+    @Setup
+    public void setup() {
+        InMemoryPortal portal = new InMemoryPortal();
+        SiteId siteId = new SiteId("classic");
+        portal.saveSite(portal.createSite(siteId));
+
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        Node category = root.addChild("category");
+        for (int i = 0; i < children; i++) {
+            category.addChild("item" + i).addChild("details");
+        }
+        navigation.saveNode(root);
+
+        this.root = navigation.getRootNode(Nodes.visitAll());
+        this.path = NodePath.path("category", "item" + (children - 1), "details");
+    }
+
+    @Benchmark
+    public Node getNode() {
+        return root.getNode(path);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.gatein.api.security.Group;
+import org.gatein.api.security.Membership;
+import org.gatein.api.security.Permission;
+import org.gatein.api.security.PermissionEvaluator;
+import org.gatein.api.security.PermissionEvaluator.MembershipSnapshot;
+import org.gatein.api.security.User;
+
+/**
+ * Measures adding a membership to, and evaluating, permissions of different sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionBenchmark {
+    @Param({ "0", "1", "10" })
+    public int memberships;
+
+    private Permission permission;
+    private Membership membership;
+    private MembershipSnapshot snapshot;
+
+    @Setup
+    public void setup() {
+        permission = Permission.everyone();
+        for (int i = 0; i < memberships; i++) {
+            permission = permission.addMembership(Membership.any("platform", "group" + i));
+        }
+        membership = new Membership("manager", new Group("platform", "administrators"));
+        snapshot = new PermissionEvaluator().snapshot(new User("john"),
+                Arrays.asList(membership, Membership.fromString("member:/platform/users")));
+    }
+
+    @Benchmark
+    public Permission addMembership() {
+        return permission.addMembership(membership);
+    }
+
+    @Benchmark
+    public boolean hasPermission() {
+        return snapshot.hasPermission(permission);
+    }
+}
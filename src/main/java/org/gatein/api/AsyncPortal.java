@@ -0,0 +1,211 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api;
+
+import org.gatein.api.common.AsyncResult;
+import org.gatein.api.common.Summary;
+import org.gatein.api.navigation.AsyncNavigation;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.page.PageQuery;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.gatein.api.site.SiteQuery;
+import org.gatein.api.security.Permission;
+import org.gatein.api.security.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The asynchronous counterpart of {@link Portal}. Each method starts the corresponding operation of <code>Portal</code> and
+ * returns immediately with an {@link AsyncResult}, so the calling thread never waits for the underlying store. Exceptions
+ * thrown by an operation, including <code>IllegalArgumentException</code> for invalid arguments, are reported through the
+ * result rather than thrown by the method.
+ * <p>
+ * A blocking <code>Portal</code> can be used asynchronously with {@link ExecutorAsyncPortal}.
+ * </p>
+ */
+public interface AsyncPortal {
+    /**
+     * Asynchronous version of {@link Portal#getSite(SiteId)}
+     *
+     * @param siteId the siteId
+     * @return the result, which is the site or null if the site does not exist
+     */
+    AsyncResult<Site> getSite(SiteId siteId);
+
+    /**
+     * Asynchronous version of {@link Portal#getSites(Collection)}
+     *
+     * @param siteIds the ids of the sites
+     * @return the result, which is the sites found keyed by id
+     */
+    AsyncResult<Map<SiteId, Site>> getSites(Collection<SiteId> siteIds);
+
+    /**
+     * Asynchronous version of {@link Portal#siteExists(SiteId)}
+     *
+     * @param siteId the siteId
+     * @return the result, which is true if the site exists
+     */
+    AsyncResult<Boolean> siteExists(SiteId siteId);
+
+    /**
+     * Asynchronous version of {@link Portal#createSite(SiteId)}
+     *
+     * @param siteId the siteId
+     * @return the result, which is the new unsaved site
+     */
+    AsyncResult<Site> createSite(SiteId siteId);
+
+    /**
+     * Asynchronous version of {@link Portal#findSites(SiteQuery)}
+     *
+     * @param query the site query
+     * @return the result, which is the list of sites found
+     */
+    AsyncResult<List<Site>> findSites(SiteQuery query);
+
+    /**
+     * Asynchronous version of {@link Portal#countSites(SiteQuery)}
+     *
+     * @param query the site query
+     * @return the result, which is the number of matching sites
+     */
+    AsyncResult<Integer> countSites(SiteQuery query);
+
+    /**
+     * Asynchronous version of {@link Portal#findSiteSummaries(SiteQuery)}
+     *
+     * @param query the site query
+     * @return the result, which is the list of site summaries found
+     */
+    AsyncResult<List<Summary<SiteId>>> findSiteSummaries(SiteQuery query);
+
+    /**
+     * Asynchronous version of {@link Portal#saveSite(Site)}
+     *
+     * @param site the site to save
+     * @return the result, which is null once the site is saved
+     */
+    AsyncResult<Void> saveSite(Site site);
+
+    /**
+     * Asynchronous version of {@link Portal#removeSite(SiteId)}
+     *
+     * @param siteId the siteId
+     * @return the result, which is true if the site was removed
+     */
+    AsyncResult<Boolean> removeSite(SiteId siteId);
+
+    /**
+     * Asynchronous version of {@link Portal#getNavigation(SiteId)}
+     *
+     * @param siteId the siteId
+     * @return the result, which is the navigation of the site or null if the site has no navigation
+     */
+    AsyncResult<AsyncNavigation> getNavigation(SiteId siteId);
+
+    /**
+     * Asynchronous version of {@link Portal#getPage(PageId)}
+     *
+     * @param pageId the pageId
+     * @return the result, which is the page or null if the page does not exist
+     */
+    AsyncResult<Page> getPage(PageId pageId);
+
+    /**
+     * Asynchronous version of {@link Portal#getPages(Collection)}
+     *
+     * @param pageIds the ids of the pages
+     * @return the result, which is the pages found keyed by id
+     */
+    AsyncResult<Map<PageId, Page>> getPages(Collection<PageId> pageIds);
+
+    /**
+     * Asynchronous version of {@link Portal#pageExists(PageId)}
+     *
+     * @param pageId the pageId
+     * @return the result, which is true if the page exists
+     */
+    AsyncResult<Boolean> pageExists(PageId pageId);
+
+    /**
+     * Asynchronous version of {@link Portal#createPage(PageId)}
+     *
+     * @param pageId the pageId
+     * @return the result, which is the new unsaved page
+     */
+    AsyncResult<Page> createPage(PageId pageId);
+
+    /**
+     * Asynchronous version of {@link Portal#findPages(PageQuery)}
+     *
+     * @param query the page query
+     * @return the result, which is the list of pages found
+     */
+    AsyncResult<List<Page>> findPages(PageQuery query);
+
+    /**
+     * Asynchronous version of {@link Portal#countPages(PageQuery)}
+     *
+     * @param query the page query
+     * @return the result, which is the number of matching pages
+     */
+    AsyncResult<Integer> countPages(PageQuery query);
+
+    /**
+     * Asynchronous version of {@link Portal#findPageSummaries(PageQuery)}
+     *
+     * @param query the page query
+     * @return the result, which is the list of page summaries found
+     */
+    AsyncResult<List<Summary<PageId>>> findPageSummaries(PageQuery query);
+
+    /**
+     * Asynchronous version of {@link Portal#savePage(Page)}
+     *
+     * @param page the page to save
+     * @return the result, which is null once the page is saved
+     */
+    AsyncResult<Void> savePage(Page page);
+
+    /**
+     * Asynchronous version of {@link Portal#removePage(PageId)}
+     *
+     * @param pageId the pageId
+     * @return the result, which is true if the page was removed
+     */
+    AsyncResult<Boolean> removePage(PageId pageId);
+
+    /**
+     * Asynchronous version of {@link Portal#hasPermission(User, Permission)}
+     *
+     * @param user the user
+     * @param permission the permission
+     * @return the result, which is true if the user has the permission
+     */
+    AsyncResult<Boolean> hasPermission(User user, Permission permission);
+}
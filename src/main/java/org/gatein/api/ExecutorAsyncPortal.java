@@ -0,0 +1,271 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import org.gatein.api.common.AsyncResult;
+import org.gatein.api.common.Summary;
+import org.gatein.api.internal.AsyncTask;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.navigation.AsyncNavigation;
+import org.gatein.api.navigation.ExecutorAsyncNavigation;
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.page.PageQuery;
+import org.gatein.api.security.Permission;
+import org.gatein.api.security.User;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.gatein.api.site.SiteQuery;
+
+/**
+ * An {@link AsyncPortal} which runs the operations of a blocking {@link Portal} on an {@link Executor}. The executor
+ * decides where the blocking calls are made, for example a bounded pool of worker threads or, on Java 21 and later, an
+ * executor starting a virtual thread per task. Navigations returned by this portal run their operations on the same
+ * executor.
+ */
+public class ExecutorAsyncPortal implements AsyncPortal {
+    private final Portal portal;
+    private final Executor executor;
+
+    /**
+     * Creates an asynchronous portal running the operations of the specified portal on the specified executor
+     *
+     * @param portal the blocking portal
+     * @param executor the executor running the operations
+     * @throws IllegalArgumentException if portal or executor is null
+     */
+    public ExecutorAsyncPortal(Portal portal, Executor executor) {
+        this.portal = Parameters.requireNonNull(portal, "portal");
+        this.executor = Parameters.requireNonNull(executor, "executor");
+    }
+
+    @Override
+    public AsyncResult<Site> getSite(final SiteId siteId) {
+        return AsyncTask.submit(executor, new Callable<Site>() {
+            @Override
+            public Site call() {
+                return portal.getSite(siteId);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Map<SiteId, Site>> getSites(final Collection<SiteId> siteIds) {
+        return AsyncTask.submit(executor, new Callable<Map<SiteId, Site>>() {
+            @Override
+            public Map<SiteId, Site> call() {
+                return portal.getSites(siteIds);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Boolean> siteExists(final SiteId siteId) {
+        return AsyncTask.submit(executor, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return portal.siteExists(siteId);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Site> createSite(final SiteId siteId) {
+        return AsyncTask.submit(executor, new Callable<Site>() {
+            @Override
+            public Site call() {
+                return portal.createSite(siteId);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<List<Site>> findSites(final SiteQuery query) {
+        return AsyncTask.submit(executor, new Callable<List<Site>>() {
+            @Override
+            public List<Site> call() {
+                return portal.findSites(query);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Integer> countSites(final SiteQuery query) {
+        return AsyncTask.submit(executor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return portal.countSites(query);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<List<Summary<SiteId>>> findSiteSummaries(final SiteQuery query) {
+        return AsyncTask.submit(executor, new Callable<List<Summary<SiteId>>>() {
+            @Override
+            public List<Summary<SiteId>> call() {
+                return portal.findSiteSummaries(query);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Void> saveSite(final Site site) {
+        return AsyncTask.submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() {
+                portal.saveSite(site);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Boolean> removeSite(final SiteId siteId) {
+        return AsyncTask.submit(executor, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return portal.removeSite(siteId);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<AsyncNavigation> getNavigation(final SiteId siteId) {
+        return AsyncTask.submit(executor, new Callable<AsyncNavigation>() {
+            @Override
+            public AsyncNavigation call() {
+                Navigation navigation = portal.getNavigation(siteId);
+                return (navigation == null) ? null : new ExecutorAsyncNavigation(navigation, executor);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Page> getPage(final PageId pageId) {
+        return AsyncTask.submit(executor, new Callable<Page>() {
+            @Override
+            public Page call() {
+                return portal.getPage(pageId);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Map<PageId, Page>> getPages(final Collection<PageId> pageIds) {
+        return AsyncTask.submit(executor, new Callable<Map<PageId, Page>>() {
+            @Override
+            public Map<PageId, Page> call() {
+                return portal.getPages(pageIds);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Boolean> pageExists(final PageId pageId) {
+        return AsyncTask.submit(executor, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return portal.pageExists(pageId);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Page> createPage(final PageId pageId) {
+        return AsyncTask.submit(executor, new Callable<Page>() {
+            @Override
+            public Page call() {
+                return portal.createPage(pageId);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<List<Page>> findPages(final PageQuery query) {
+        return AsyncTask.submit(executor, new Callable<List<Page>>() {
+            @Override
+            public List<Page> call() {
+                return portal.findPages(query);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Integer> countPages(final PageQuery query) {
+        return AsyncTask.submit(executor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return portal.countPages(query);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<List<Summary<PageId>>> findPageSummaries(final PageQuery query) {
+        return AsyncTask.submit(executor, new Callable<List<Summary<PageId>>>() {
+            @Override
+            public List<Summary<PageId>> call() {
+                return portal.findPageSummaries(query);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Void> savePage(final Page page) {
+        return AsyncTask.submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() {
+                portal.savePage(page);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Boolean> removePage(final PageId pageId) {
+        return AsyncTask.submit(executor, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return portal.removePage(pageId);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Boolean> hasPermission(final User user, final Permission permission) {
+        return AsyncTask.submit(executor, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return portal.hasPermission(user, permission);
+            }
+        });
+    }
+}
@@ -22,6 +22,8 @@
 
 package org.gatein.api;
 
+import org.gatein.api.common.Cursor;
+import org.gatein.api.common.Summary;
 import org.gatein.api.navigation.Navigation;
 import org.gatein.api.page.Page;
 import org.gatein.api.page.PageId;
@@ -32,7 +34,9 @@ import org.gatein.api.site.SiteQuery;
 import org.gatein.api.security.Permission;
 import org.gatein.api.security.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The main interface of the portal public API. This is available from the <code>PortalRequest</code> object which can be
@@ -50,6 +54,26 @@ public interface Portal {
      * @throws IllegalArgumentException if siteId is null
      */
     Site getSite(SiteId siteId) throws IllegalArgumentException;
+
+    /**
+     * Returns the sites for a collection of <code>SiteId</code>s. Implementations should retrieve all sites at once rather
+     * than calling {@link #getSite(org.gatein.api.site.SiteId)} for each id.
+     *
+     * @param siteIds the site ids
+     * @return map of the sites found keyed by site id, in the iteration order of siteIds. Sites that do not exist are not
+     *         included.
+     * @throws IllegalArgumentException if siteIds is null or contains null
+     */
+    Map<SiteId, Site> getSites(Collection<SiteId> siteIds) throws IllegalArgumentException;
+
+    /**
+     * Returns true if a site exists for the given <code>SiteId</code>, without retrieving the site.
+     *
+     * @param siteId the site id
+     * @return true if the site exists
+     * @throws IllegalArgumentException if siteId is null
+     */
+    boolean siteExists(SiteId siteId) throws IllegalArgumentException;
     
     /**
      * Creates a a site given the <code>SiteId</code>. This site is not saved until
@@ -71,6 +95,41 @@ public interface Portal {
      */
     List<Site> findSites(SiteQuery query) throws IllegalArgumentException;
 
+    /**
+     * Finds sites given the <code>SiteQuery</code>, returning a cursor which fetches sites as it is iterated. The pagination
+     * of the query is ignored and the cursor returns all remaining sites, which makes it suitable for iterating a large
+     * number of sites in constant memory.
+     *
+     * @param query the site query, which must not sort with a comparator or by a property other than the site type
+     * @param continuationToken a token obtained from {@link Cursor#getContinuationToken()} of a previous cursor for the
+     *        same query, or null to start from the first site
+     * @return the cursor, which should be closed when no longer used
+     * @throws IllegalArgumentException if query is null, the query sorts with a comparator or by a property other than the
+     *         site type, or the continuation token is invalid
+     */
+    Cursor<Site> findSites(SiteQuery query, String continuationToken) throws IllegalArgumentException;
+
+    /**
+     * Counts the sites matching the <code>SiteQuery</code>, without retrieving the sites. The pagination of the query is
+     * ignored.
+     *
+     * @param query the site query
+     * @return the number of sites matching the query
+     * @throws IllegalArgumentException if query is null
+     */
+    int countSites(SiteQuery query) throws IllegalArgumentException;
+
+    /**
+     * Finds sites given the <code>SiteQuery</code>, returning lightweight summaries containing the properties selected by
+     * the projection of the query instead of full sites.
+     *
+     * @param query the site query
+     * @return list of summaries of the sites found. The list will be empty if no sites were found.
+     * @throws IllegalArgumentException if query is null
+     * @see SiteQuery#getProjection()
+     */
+    List<Summary<SiteId>> findSiteSummaries(SiteQuery query) throws IllegalArgumentException;
+
     /**
      * Saves a site
      *
@@ -110,6 +169,27 @@ public interface Portal {
      */
     Page getPage(PageId pageId) throws IllegalArgumentException, EntityNotFoundException;
 
+    /**
+     * Returns the pages for a collection of <code>PageId</code>s. Implementations should retrieve all pages at once rather
+     * than calling {@link #getPage(org.gatein.api.page.PageId)} for each id.
+     *
+     * @param pageIds the page ids
+     * @return map of the pages found keyed by page id, in the iteration order of pageIds. Pages that do not exist are not
+     *         included.
+     * @throws IllegalArgumentException if pageIds is null or contains null
+     * @throws EntityNotFoundException if the site does not exist for one of the page ids
+     */
+    Map<PageId, Page> getPages(Collection<PageId> pageIds) throws IllegalArgumentException, EntityNotFoundException;
+
+    /**
+     * Returns true if a page exists for the given <code>PageId</code>, without retrieving the page.
+     *
+     * @param pageId the page id
+     * @return true if the page exists, false if the page or its site does not exist
+     * @throws IllegalArgumentException if pageId is null
+     */
+    boolean pageExists(PageId pageId) throws IllegalArgumentException;
+
     /**
      * Creates a page for a site given the <code>PageId</code>. This page is not saved until
      * {@link Portal#savePage(org.gatein.api.page.Page)} is called.
@@ -131,6 +211,40 @@ public interface Portal {
      */
     List<Page> findPages(PageQuery query) throws IllegalArgumentException;
 
+    /**
+     * Finds pages given the <code>PageQuery</code>, returning a cursor which fetches pages as it is iterated. The pagination
+     * of the query is ignored and the cursor returns all remaining pages, which makes it suitable for iterating a large
+     * number of pages in constant memory.
+     *
+     * @param query the page query
+     * @param continuationToken a token obtained from {@link Cursor#getContinuationToken()} of a previous cursor for the
+     *        same query, or null to start from the first page
+     * @return the cursor, which should be closed when no longer used
+     * @throws IllegalArgumentException if query is null or the continuation token is invalid
+     */
+    Cursor<Page> findPages(PageQuery query, String continuationToken) throws IllegalArgumentException;
+
+    /**
+     * Counts the pages matching the <code>PageQuery</code>, without retrieving the pages. The pagination of the query is
+     * ignored.
+     *
+     * @param query the page query
+     * @return the number of pages matching the query
+     * @throws IllegalArgumentException if query is null
+     */
+    int countPages(PageQuery query) throws IllegalArgumentException;
+
+    /**
+     * Finds pages given the <code>PageQuery</code>, returning lightweight summaries containing the properties selected by
+     * the projection of the query instead of full pages.
+     *
+     * @param query the page query
+     * @return list of summaries of the pages found. The list will be empty if no pages were found.
+     * @throws IllegalArgumentException if query is null
+     * @see PageQuery#getProjection()
+     */
+    List<Summary<PageId>> findPageSummaries(PageQuery query) throws IllegalArgumentException;
+
     /**
      * Saves a page
      *
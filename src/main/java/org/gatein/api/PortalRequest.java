@@ -23,6 +23,10 @@
 package org.gatein.api;
 
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.gatein.api.common.URIResolver;
 import org.gatein.api.navigation.Navigation;
@@ -42,10 +46,15 @@ import org.gatein.api.site.SiteId;
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
 public abstract class PortalRequest {
-    private Site site;
-    private Navigation navigation;
-    private Page page;
-    private boolean pageLoaded;
+    // The request may be shared across threads, see PortalRequestContext. page is always written before pageLoaded.
+    private volatile Site site;
+    private volatile Navigation navigation;
+    private volatile Page page;
+    private volatile boolean pageLoaded;
+    private volatile FutureTask<Site> siteTask;
+    private volatile FutureTask<Navigation> navigationTask;
+    private volatile FutureTask<Page> pageTask;
+    private volatile RequestScopedPortal scopedPortal;
 
     /**
      * The user of the request. If this request is for an unauthenticated user then {@link User#anonymous()} is returned.
@@ -81,8 +90,11 @@ public abstract class PortalRequest {
      * @return the site of the current portal request
      */
     public Site getSite() {
+        Site site = this.site;
         if (site == null) {
-            site = getPortal().getSite(getSiteId());
+            FutureTask<Site> task = siteTask;
+            site = (task == null) ? getScopedPortal().getSite(getSiteId()) : await(task);
+            this.site = site;
         }
 
         return site;
@@ -95,9 +107,8 @@ public abstract class PortalRequest {
      */
     public Page getPage() {
         if (!pageLoaded) {
-            Node node = getNavigation().getNode(getNodePath());
-            PageId pageId = node != null ? node.getPageId() : null;
-            page = (pageId == null) ? null : getPortal().getPage(pageId);
+            FutureTask<Page> task = pageTask;
+            page = (task == null) ? loadPage(getScopedPortal(), getNavigation(), getNodePath()) : await(task);
             pageLoaded = true;
         }
 
@@ -110,20 +121,120 @@ public abstract class PortalRequest {
      * @return the navigation represented by the current portal request.
      */
     public Navigation getNavigation() {
+        Navigation navigation = this.navigation;
         if (navigation == null) {
-            navigation = getPortal().getNavigation(getSiteId());
+            FutureTask<Navigation> task = navigationTask;
+            navigation = (task == null) ? getScopedPortal().getNavigation(getSiteId()) : await(task);
+            this.navigation = navigation;
         }
 
         return navigation;
     }
 
     /**
-     * Access to the portal interface
+     * Starts loading the site, the navigation and the page of this request on the specified executor, rather than one after
+     * another when they are first accessed. The site is loaded concurrently with the navigation, and the page is loaded as
+     * soon as the navigation is available. Calling {@link #getSite()}, {@link #getNavigation()} or {@link #getPage()}
+     * waits for the corresponding load to finish, or performs it in the calling thread if the executor has not started it
+     * yet.
+     * <p>
+     * Prefetching is opt-in. Portals enable it by calling this method when the request is bound, which is worthwhile when
+     * the latency of the underlying store dominates. The portal, site id and node path of the request are read by the
+     * calling thread.
+     * </p>
+     *
+     * @param executor the executor loading the site, navigation and page
+     * @throws IllegalArgumentException if executor is null
+     */
+    protected void prefetch(Executor executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("executor cannot be null");
+
+        final Portal portal = getScopedPortal();
+        final SiteId siteId = getSiteId();
+        final NodePath nodePath = getNodePath();
+
+        siteTask = new FutureTask<Site>(new Callable<Site>() {
+            @Override
+            public Site call() {
+                return portal.getSite(siteId);
+            }
+        });
+        final FutureTask<Navigation> navigationTask = new FutureTask<Navigation>(new Callable<Navigation>() {
+            @Override
+            public Navigation call() {
+                return portal.getNavigation(siteId);
+            }
+        });
+        pageTask = new FutureTask<Page>(new Callable<Page>() {
+            @Override
+            public Page call() {
+                return loadPage(portal, await(navigationTask), nodePath);
+            }
+        });
+        this.navigationTask = navigationTask;
+
+        executor.execute(siteTask);
+        executor.execute(pageTask);
+    }
+
+    private static Page loadPage(Portal portal, Navigation navigation, NodePath nodePath) {
+        Node node = (navigation == null) ? null : navigation.getNode(nodePath);
+        PageId pageId = node != null ? node.getPageId() : null;
+        return (pageId == null) ? null : portal.getPage(pageId);
+    }
+
+    /**
+     * Runs the task in the calling thread unless it has already been started, and returns its result
+     */
+    private static <T> T await(FutureTask<T> task) {
+        task.run();
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new ApiException("Failed to load the portal request", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while loading the portal request", e);
+        }
+    }
+
+    /**
+     * Access to the portal interface. Every read goes to the portal, see {@link #getScopedPortal()} to avoid reading the same
+     * entities repeatedly within a request.
      * 
      * @return the portal interface
      */
     public abstract Portal getPortal();
 
+    /**
+     * Access to the portal interface through a request scoped identity map. Sites, pages and navigations read through the
+     * returned portal are retrieved from {@link #getPortal()} at most once during this request, and later reads of the
+     * same entity return the same instance. Entities saved or removed through the returned portal update the map. The map is
+     * cleared when the request is unbound with <code>setInstance(null)</code>.
+     * 
+     * @return the request scoped portal interface
+     */
+    public Portal getScopedPortal() {
+        RequestScopedPortal portal = scopedPortal;
+        if (portal == null) {
+            synchronized (this) {
+                portal = scopedPortal;
+                if (portal == null) {
+                    portal = new RequestScopedPortal(getPortal());
+                    scopedPortal = portal;
+                }
+            }
+        }
+        return portal;
+    }
+
     /**
      * The resolver used to resolve the URI for Nodes. This is used by {@link Node#getURI()} which is the recommended way to
      * obtain the URI for a Node.
@@ -141,7 +252,27 @@ public abstract class PortalRequest {
         return instance.get();
     }
 
+    /**
+     * Binds the request to the current thread, or unbinds the current request and releases its request scoped state if
+     * request is null. Use {@link PortalRequestContext} to make the request current in other threads.
+     *
+     * @param request the request, or null to unbind the current request
+     */
     protected static void setInstance(PortalRequest request) {
+        if (request == null) {
+            PortalRequest current = instance.get();
+            if (current != null && current.scopedPortal != null) {
+                current.scopedPortal.clear();
+            }
+        }
+        bind(request);
+    }
+
+    /**
+     * Makes the request current in this thread without releasing the state of the previous request, which may still be
+     * current in other threads
+     */
+    static void bind(PortalRequest request) {
         if (request == null) {
             instance.remove();
         } else {
@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import org.gatein.api.internal.Parameters;
+
+/**
+ * A snapshot of the current {@link PortalRequest}, which makes the request current while tasks run in other threads. The
+ * current request is kept per thread, so it is otherwise lost when work is handed to an executor or to a callback of an
+ * asynchronous operation.
+ * <p>
+ * For example, to render portlets in parallel:
+ * </p>
+ * <pre>
+ * Executor executor = PortalRequestContext.propagating(workers);
+ * executor.execute(renderTask); // PortalRequest.getInstance() is available to renderTask
+ * </pre>
+ * <p>
+ * The request is only current while a task runs. Afterwards the request previously current in the thread, usually none,
+ * is restored, so pooled threads never keep a reference to a finished request. Restoring does not release the request
+ * scoped state of the propagated request, which remains with the thread that bound it.
+ * </p>
+ */
+public final class PortalRequestContext {
+    private final PortalRequest request;
+
+    private PortalRequestContext(PortalRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Captures the request current in the calling thread
+     *
+     * @return the context, whose request is null if no request is current
+     */
+    public static PortalRequestContext capture() {
+        return new PortalRequestContext(PortalRequest.getInstance());
+    }
+
+    /**
+     * Returns an executor which runs tasks with the request that was current when each task was submitted
+     *
+     * @param executor the executor running the tasks
+     * @return the propagating executor
+     * @throws IllegalArgumentException if executor is null
+     */
+    public static Executor propagating(final Executor executor) {
+        Parameters.requireNonNull(executor, "executor");
+
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executor.execute(capture().wrap(command));
+            }
+        };
+    }
+
+    /**
+     * The captured request
+     *
+     * @return the request, or null if no request was current
+     */
+    public PortalRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns a task which runs the specified task with the captured request as the current request
+     *
+     * @param task the task
+     * @return the wrapped task
+     * @throws IllegalArgumentException if task is null
+     */
+    public Runnable wrap(final Runnable task) {
+        Parameters.requireNonNull(task, "task");
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                PortalRequest previous = PortalRequest.getInstance();
+                PortalRequest.bind(request);
+                try {
+                    task.run();
+                } finally {
+                    PortalRequest.bind(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a task which calls the specified task with the captured request as the current request
+     *
+     * @param task the task
+     * @return the wrapped task
+     * @throws IllegalArgumentException if task is null
+     */
+    public <T> Callable<T> wrap(final Callable<T> task) {
+        Parameters.requireNonNull(task, "task");
+
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                PortalRequest previous = PortalRequest.getInstance();
+                PortalRequest.bind(request);
+                try {
+                    return task.call();
+                } finally {
+                    PortalRequest.bind(previous);
+                }
+            }
+        };
+    }
+}
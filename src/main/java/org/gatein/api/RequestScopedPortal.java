@@ -0,0 +1,288 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.gatein.api.common.Cursor;
+import org.gatein.api.common.Summary;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.page.PageQuery;
+import org.gatein.api.security.Permission;
+import org.gatein.api.security.User;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.gatein.api.site.SiteQuery;
+
+/**
+ * A {@link Portal} which memoizes the sites, pages and navigations read through it, so each entity is retrieved from the
+ * underlying portal at most once and the same instance is returned for every later read. Entities saved through this
+ * portal replace the memoized instances and removed entities are forgotten. Changes made through other portals are not
+ * visible until {@link #clear()} is called.
+ */
+final class RequestScopedPortal implements Portal {
+    private final Portal portal;
+    private final ConcurrentMap<SiteId, Site> sites = new ConcurrentHashMap<SiteId, Site>();
+    private final ConcurrentMap<PageId, Page> pages = new ConcurrentHashMap<PageId, Page>();
+    private final ConcurrentMap<SiteId, Navigation> navigations = new ConcurrentHashMap<SiteId, Navigation>();
+
+    RequestScopedPortal(Portal portal) {
+        this.portal = Parameters.requireNonNull(portal, "portal");
+    }
+
+    /**
+     * Forgets all memoized entities
+     */
+    void clear() {
+        sites.clear();
+        pages.clear();
+        navigations.clear();
+    }
+
+    @Override
+    public Site getSite(SiteId siteId) throws IllegalArgumentException {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        Site site = sites.get(siteId);
+        return (site == null) ? memoize(sites, siteId, portal.getSite(siteId)) : site;
+    }
+
+    @Override
+    public Map<SiteId, Site> getSites(Collection<SiteId> siteIds) throws IllegalArgumentException {
+        Parameters.requireNonNull(siteIds, "siteIds");
+
+        Map<SiteId, Site> result = new LinkedHashMap<SiteId, Site>();
+        List<SiteId> missing = new ArrayList<SiteId>();
+        for (SiteId siteId : siteIds) {
+            Parameters.requireNonNull(siteId, "siteId");
+
+            Site site = sites.get(siteId);
+            if (site == null) {
+                missing.add(siteId);
+            }
+            result.put(siteId, site);
+        }
+
+        Map<SiteId, Site> loaded = missing.isEmpty() ? null : portal.getSites(missing);
+        for (Iterator<Map.Entry<SiteId, Site>> iterator = result.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<SiteId, Site> entry = iterator.next();
+            if (entry.getValue() == null) {
+                Site site = memoize(sites, entry.getKey(), loaded.get(entry.getKey()));
+                if (site == null) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(site);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean siteExists(SiteId siteId) throws IllegalArgumentException {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        return sites.containsKey(siteId) || portal.siteExists(siteId);
+    }
+
+    @Override
+    public Site createSite(SiteId siteId) throws IllegalArgumentException, EntityAlreadyExistsException {
+        return portal.createSite(siteId);
+    }
+
+    @Override
+    public List<Site> findSites(SiteQuery query) throws IllegalArgumentException {
+        List<Site> found = portal.findSites(query);
+        List<Site> result = new ArrayList<Site>(found.size());
+        for (Site site : found) {
+            result.add(memoize(sites, site.getId(), site));
+        }
+        return result;
+    }
+
+    @Override
+    public Cursor<Site> findSites(SiteQuery query, String continuationToken) throws IllegalArgumentException {
+        return portal.findSites(query, continuationToken);
+    }
+
+    @Override
+    public int countSites(SiteQuery query) throws IllegalArgumentException {
+        return portal.countSites(query);
+    }
+
+    @Override
+    public List<Summary<SiteId>> findSiteSummaries(SiteQuery query) throws IllegalArgumentException {
+        return portal.findSiteSummaries(query);
+    }
+
+    @Override
+    public void saveSite(Site site) throws IllegalArgumentException, ApiException {
+        portal.saveSite(site);
+        sites.put(site.getId(), site);
+    }
+
+    @Override
+    public boolean removeSite(SiteId siteId) throws IllegalArgumentException, EntityNotFoundException {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        try {
+            return portal.removeSite(siteId);
+        } finally {
+            sites.remove(siteId);
+            navigations.remove(siteId);
+            for (Iterator<PageId> iterator = pages.keySet().iterator(); iterator.hasNext();) {
+                if (iterator.next().getSiteId().equals(siteId)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Navigation getNavigation(SiteId siteId) throws IllegalArgumentException, EntityNotFoundException {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        Navigation navigation = navigations.get(siteId);
+        return (navigation == null) ? memoize(navigations, siteId, portal.getNavigation(siteId)) : navigation;
+    }
+
+    @Override
+    public Page getPage(PageId pageId) throws IllegalArgumentException, EntityNotFoundException {
+        Parameters.requireNonNull(pageId, "pageId");
+
+        Page page = pages.get(pageId);
+        return (page == null) ? memoize(pages, pageId, portal.getPage(pageId)) : page;
+    }
+
+    @Override
+    public Map<PageId, Page> getPages(Collection<PageId> pageIds) throws IllegalArgumentException, EntityNotFoundException {
+        Parameters.requireNonNull(pageIds, "pageIds");
+
+        Map<PageId, Page> result = new LinkedHashMap<PageId, Page>();
+        List<PageId> missing = new ArrayList<PageId>();
+        for (PageId pageId : pageIds) {
+            Parameters.requireNonNull(pageId, "pageId");
+
+            Page page = pages.get(pageId);
+            if (page == null) {
+                missing.add(pageId);
+            }
+            result.put(pageId, page);
+        }
+
+        Map<PageId, Page> loaded = missing.isEmpty() ? null : portal.getPages(missing);
+        for (Iterator<Map.Entry<PageId, Page>> iterator = result.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<PageId, Page> entry = iterator.next();
+            if (entry.getValue() == null) {
+                Page page = memoize(pages, entry.getKey(), loaded.get(entry.getKey()));
+                if (page == null) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(page);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean pageExists(PageId pageId) throws IllegalArgumentException {
+        Parameters.requireNonNull(pageId, "pageId");
+
+        return pages.containsKey(pageId) || portal.pageExists(pageId);
+    }
+
+    @Override
+    public Page createPage(PageId pageId) throws IllegalArgumentException, EntityAlreadyExistsException,
+            EntityNotFoundException {
+        return portal.createPage(pageId);
+    }
+
+    @Override
+    public List<Page> findPages(PageQuery query) throws IllegalArgumentException {
+        List<Page> found = portal.findPages(query);
+        List<Page> result = new ArrayList<Page>(found.size());
+        for (Page page : found) {
+            result.add(memoize(pages, page.getId(), page));
+        }
+        return result;
+    }
+
+    @Override
+    public Cursor<Page> findPages(PageQuery query, String continuationToken) throws IllegalArgumentException {
+        return portal.findPages(query, continuationToken);
+    }
+
+    @Override
+    public int countPages(PageQuery query) throws IllegalArgumentException {
+        return portal.countPages(query);
+    }
+
+    @Override
+    public List<Summary<PageId>> findPageSummaries(PageQuery query) throws IllegalArgumentException {
+        return portal.findPageSummaries(query);
+    }
+
+    @Override
+    public void savePage(Page page) throws IllegalArgumentException, ApiException {
+        portal.savePage(page);
+        pages.put(page.getId(), page);
+    }
+
+    @Override
+    public boolean removePage(PageId pageId) throws EntityNotFoundException {
+        Parameters.requireNonNull(pageId, "pageId");
+
+        try {
+            return portal.removePage(pageId);
+        } finally {
+            pages.remove(pageId);
+        }
+    }
+
+    @Override
+    public boolean hasPermission(User user, Permission permission) {
+        return portal.hasPermission(user, permission);
+    }
+
+    /**
+     * Memoizes the value unless another thread did so first, and returns the memoized value
+     */
+    private static <K, V> V memoize(ConcurrentMap<K, V> map, K key, V value) {
+        if (value == null)
+            return null;
+
+        V existing = map.putIfAbsent(key, value);
+        return (existing == null) ? value : existing;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.common;
+
+import java.util.concurrent.Future;
+
+/**
+ * The pending result of an asynchronous operation. In addition to blocking with {@link #get()}, callers can register a
+ * {@link Callback} which is notified when the operation completes, so no thread has to wait for the result.
+ *
+ * @param <T> the type of the result
+ */
+public interface AsyncResult<T> extends Future<T> {
+    /**
+     * Registers a callback notified when the operation completes. If the operation has already completed, the callback is
+     * notified immediately by the calling thread, otherwise it is notified by the thread completing the operation.
+     *
+     * @param callback the callback
+     * @return this result
+     * @throws IllegalArgumentException if callback is null
+     */
+    AsyncResult<T> onComplete(Callback<? super T> callback) throws IllegalArgumentException;
+}
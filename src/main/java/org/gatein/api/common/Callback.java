@@ -0,0 +1,44 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.common;
+
+/**
+ * A callback notified when an {@link AsyncResult} completes.
+ *
+ * @param <T> the type of the result
+ */
+public interface Callback<T> {
+    /**
+     * Called when the operation completed normally
+     *
+     * @param result the result of the operation, which is null for operations without a result
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when the operation failed or was cancelled
+     *
+     * @param failure the exception thrown by the operation, or a <code>CancellationException</code> if it was cancelled
+     */
+    void onFailure(Throwable failure);
+}
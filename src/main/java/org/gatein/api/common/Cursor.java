@@ -0,0 +1,53 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.common;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An iterator over the results of a query, which fetches results from the underlying store as it is iterated rather than
+ * materializing them up front. The position of a cursor can be saved as an opaque continuation token, which is passed to the
+ * query method that created the cursor to continue after the last result returned.
+ * <p>
+ * Cursors may hold resources of the underlying store and should be closed when no longer used. The
+ * {@link Iterator#remove()} operation is not supported.
+ * </p>
+ *
+ * @param <T> the type of the results
+ */
+public interface Cursor<T> extends Iterator<T>, Closeable {
+    /**
+     * Returns a token representing the position after the last result returned by {@link #next()}. If no result has been
+     * returned yet, this is the token the cursor was opened with.
+     *
+     * @return the continuation token, or null if no result has been returned and the cursor was opened without a token
+     */
+    String getContinuationToken();
+
+    /**
+     * Closes this cursor and releases any resources held by it. Once closed, {@link #hasNext()} returns false.
+     */
+    @Override
+    void close();
+}
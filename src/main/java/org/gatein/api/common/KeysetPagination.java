@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.common;
+
+import org.gatein.api.internal.ObjectToStringBuilder;
+
+import java.io.Serializable;
+
+/**
+ * A keyset pagination object, which describes a page of results as the results following the last seen sort key rather than
+ * an offset. This lets queries seek directly to the next page instead of skipping all preceding results, so retrieving a
+ * page costs the same regardless of how deep it is.
+ *
+ * @param <K> the type of the sort key, for example {@link org.gatein.api.site.SiteId}
+ */
+public class KeysetPagination<K> implements Serializable {
+    private final K after;
+    private final int limit;
+
+    /**
+     * Creates a keyset pagination object
+     *
+     * @param after the last seen sort key, or null for the first page
+     * @param limit the maximum amount of results to return
+     * @throws IllegalArgumentException if limit is 0
+     */
+    public KeysetPagination(K after, int limit) throws IllegalArgumentException {
+        if (limit == 0)
+            throw new IllegalArgumentException("limit cannot be 0 for pagination.");
+
+        this.after = after;
+        this.limit = limit;
+    }
+
+    /**
+     * The last seen sort key. Results start with the first result after this key.
+     *
+     * @return the key, or null for the first page
+     */
+    public K getAfter() {
+        return after;
+    }
+
+    /**
+     * The limit for this pagination object. The limit determines the maximum amount of results to return.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Creates a new keyset pagination object representing the page after the specified key
+     *
+     * @param lastKey the sort key of the last result of this page
+     * @return new keyset pagination object with the same limit
+     */
+    public KeysetPagination<K> getNext(K lastKey) {
+        return new KeysetPagination<K>(lastKey, limit);
+    }
+
+    @Override
+    public String toString() {
+        return ObjectToStringBuilder.toStringBuilder().add("after", after).add("limit", limit).toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof KeysetPagination))
+            return false;
+
+        KeysetPagination<?> pagination = (KeysetPagination<?>) o;
+
+        return (limit == pagination.limit) && (after == null ? pagination.after == null : after.equals(pagination.after));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (after == null) ? 0 : after.hashCode();
+        result = 31 * result + limit;
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.common;
+
+import org.gatein.api.internal.ObjectToStringBuilder;
+import org.gatein.api.internal.Parameters;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A declarative condition on a {@link Property} of an element. Unlike an arbitrary {@link Filter}, a predicate describes
+ * what it matches, so query implementations can translate it into index lookups instead of loading and testing every
+ * element. Predicates are also filters, so implementations without a suitable index can fall back to
+ * {@link #accept(Object)}.
+ * <p>
+ * If the property has multiple values (a <code>Collection</code>), the predicate matches if any of the values matches.
+ * </p>
+ *
+ * @param <T> the type of the element
+ */
+public class Predicate<T> implements Filter<T>, Serializable {
+    private final Property<T> property;
+    private final Operator operator;
+    private final Set<Object> values;
+
+    private Predicate(Property<T> property, Operator operator, Set<Object> values) {
+        this.property = Parameters.requireNonNull(property, "property");
+        this.operator = operator;
+        this.values = values;
+    }
+
+    /**
+     * Creates a predicate matching elements where the property equals the specified value
+     *
+     * @param property the property
+     * @param value the value
+     * @return the predicate
+     * @throws IllegalArgumentException if property or value is null
+     */
+    public static <T> Predicate<T> equalTo(Property<T> property, Object value) throws IllegalArgumentException {
+        Parameters.requireNonNull(value, "value");
+
+        return new Predicate<T>(property, Operator.EQUALS, Collections.singleton(value));
+    }
+
+    /**
+     * Creates a predicate matching elements where the property is a string starting with the specified prefix
+     *
+     * @param property the property
+     * @param prefix the prefix
+     * @return the predicate
+     * @throws IllegalArgumentException if property or prefix is null
+     */
+    public static <T> Predicate<T> startsWith(Property<T> property, String prefix) throws IllegalArgumentException {
+        Parameters.requireNonNull(prefix, "prefix");
+
+        return new Predicate<T>(property, Operator.PREFIX, Collections.<Object> singleton(prefix));
+    }
+
+    /**
+     * Creates a predicate matching elements where the property equals one of the specified values
+     *
+     * @param property the property
+     * @param values the values
+     * @return the predicate
+     * @throws IllegalArgumentException if property or values is null
+     */
+    public static <T> Predicate<T> in(Property<T> property, Collection<?> values) throws IllegalArgumentException {
+        Parameters.requireNonNull(values, "values");
+
+        return new Predicate<T>(property, Operator.IN, Collections.unmodifiableSet(new LinkedHashSet<Object>(values)));
+    }
+
+    /**
+     * The property this predicate applies to
+     *
+     * @return the property
+     */
+    public Property<T> getProperty() {
+        return property;
+    }
+
+    /**
+     * The operator of this predicate
+     *
+     * @return the operator
+     */
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * The values of this predicate. Predicates with the {@link Operator#EQUALS} and {@link Operator#PREFIX} operators have a
+     * single value.
+     *
+     * @return the values
+     */
+    public Set<Object> getValues() {
+        return values;
+    }
+
+    @Override
+    public boolean accept(T element) {
+        Object value = property.getValue(element);
+        if (value instanceof Collection) {
+            for (Object v : (Collection<?>) value) {
+                if (matches(v))
+                    return true;
+            }
+            return false;
+        }
+        return matches(value);
+    }
+
+    /**
+     * Returns true if the specified value of the property matches this predicate. Implementations of queries can use this
+     * to test values without an element, for example keys of an index.
+     *
+     * @param value a single value of the property
+     * @return true if the value matches
+     */
+    public boolean matches(Object value) {
+        if (value == null)
+            return false;
+
+        if (operator == Operator.PREFIX) {
+            return value instanceof String && ((String) value).startsWith((String) values.iterator().next());
+        } else {
+            return values.contains(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ObjectToStringBuilder.toStringBuilder().add("property", property).add("operator", operator)
+                .add("values", values).toString();
+    }
+
+    public static enum Operator {
+        EQUALS, PREFIX, IN
+    }
+}
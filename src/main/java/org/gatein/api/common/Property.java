@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.common;
+
+import org.gatein.api.internal.Parameters;
+
+import java.io.Serializable;
+
+/**
+ * A named property of an element which can be used in a {@link Predicate}. Implementations of queries translate predicates
+ * on well known properties into lookups of the underlying store, so two properties are only equal if they have the same
+ * name and the same class, which defines how the value is extracted. A property with the name of a well known property but
+ * its own extraction is therefore evaluated as is rather than translated.
+ *
+ * @param <T> the type of the element
+ */
+public abstract class Property<T> implements Serializable {
+    private final String name;
+
+    /**
+     * Creates a property with the specified name
+     *
+     * @param name the name of the property
+     */
+    protected Property(String name) {
+        this.name = Parameters.requireNonNull(name, "name");
+    }
+
+    /**
+     * The name of this property
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the value of this property for the specified element. Properties with multiple values return a
+     * <code>Collection</code>.
+     *
+     * @param element the element
+     * @return the value, which may be null
+     */
+    public abstract Object getValue(T element);
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        return name.equals(((Property<?>) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
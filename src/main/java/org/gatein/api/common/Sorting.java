@@ -28,12 +28,14 @@ import java.io.Serializable;
 import java.util.Comparator;
 
 /**
- * A sorting object defining order (ASC, DESC) or a custom comparator, but not both.
+ * A sorting object defining order (ASC, DESC), optionally by a {@link Property}, or a custom comparator, but not both.
+ * Sorting by a property lets implementations use an index ordered by that property rather than sorting in memory.
  *
  * @author <a href="mailto:nscavell@redhat.com">Nick Scavelli</a>
  */
 public class Sorting<T> implements Serializable {
     private final Order order;
+    private final Property<T> property;
     private final Comparator<T> comparator;
 
     /**
@@ -42,7 +44,18 @@ public class Sorting<T> implements Serializable {
      * @param order the order to sort.
      */
     public Sorting(Order order) {
-        this(order, null);
+        this(order, null, null);
+    }
+
+    /**
+     * A sorting object which sorts by the value of a property in the specified order. Elements with equal values are sorted
+     * in their natural order, and the values of the property must be comparable.
+     *
+     * @param property the property to sort by
+     * @param order the order to sort.
+     */
+    public Sorting(Property<T> property, Order order) {
+        this(order, property, null);
     }
 
     /**
@@ -52,11 +65,12 @@ public class Sorting<T> implements Serializable {
      * @see Comparator
      */
     public Sorting(Comparator<T> comparator) {
-        this(null, comparator);
+        this(null, null, comparator);
     }
 
-    private Sorting(Order order, Comparator<T> comparator) {
+    private Sorting(Order order, Property<T> property, Comparator<T> comparator) {
         this.order = order;
+        this.property = property;
         this.comparator = comparator;
     }
 
@@ -69,6 +83,15 @@ public class Sorting<T> implements Serializable {
         return order;
     }
 
+    /**
+     * The property to sort by.
+     *
+     * @return the property, which can be null.
+     */
+    public Property<T> getProperty() {
+        return property;
+    }
+
     /**
      * The comparator used to sort.
      *
@@ -80,7 +103,7 @@ public class Sorting<T> implements Serializable {
 
     @Override
     public String toString() {
-        return ObjectToStringBuilder.toStringBuilder().add("order", order).add("comparator", comparator).toString();
+        return ObjectToStringBuilder.toStringBuilder().add("order", order).add("property", property).add("comparator", comparator).toString();
     }
 
     public static enum Order {
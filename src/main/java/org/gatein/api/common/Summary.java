@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.common;
+
+import org.gatein.api.internal.ObjectToStringBuilder;
+import org.gatein.api.internal.Parameters;
+
+import java.io.Serializable;
+
+/**
+ * A lightweight, immutable summary of a site or page returned by projection queries. Which properties are included is
+ * determined by the {@link Projection} of the query; properties not included are null.
+ *
+ * @param <I> the type of the id, for example {@link org.gatein.api.site.SiteId}
+ */
+public class Summary<I> implements Serializable {
+    private final I id;
+    private final String displayName;
+
+    /**
+     * Creates a new summary
+     *
+     * @param id the id
+     * @param displayName the display name, or null if not included
+     * @throws IllegalArgumentException if id is null
+     */
+    public Summary(I id, String displayName) throws IllegalArgumentException {
+        this.id = Parameters.requireNonNull(id, "id");
+        this.displayName = displayName;
+    }
+
+    /**
+     * The id of the site or page
+     *
+     * @return the id
+     */
+    public I getId() {
+        return id;
+    }
+
+    /**
+     * The display name of the site or page
+     *
+     * @return the display name, or null if not included by the projection
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Summary))
+            return false;
+
+        Summary<?> summary = (Summary<?>) o;
+
+        return id.equals(summary.id) && (displayName == null ? summary.displayName == null : displayName.equals(summary.displayName));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id.hashCode();
+        result = 31 * result + (displayName == null ? 0 : displayName.hashCode());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return ObjectToStringBuilder.toStringBuilder(getClass()).add("id", id).add("displayName", displayName).toString();
+    }
+}
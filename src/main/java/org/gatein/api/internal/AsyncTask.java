@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.gatein.api.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.gatein.api.common.AsyncResult;
+import org.gatein.api.common.Callback;
+
+/**
+ * An {@link AsyncResult} computed by a task submitted to an executor, which notifies its callbacks once the task is done.
+ */
+public final class AsyncTask<T> extends FutureTask<T> implements AsyncResult<T> {
+    private static final Logger log = Logger.getLogger(AsyncTask.class.getName());
+
+    private List<Callback<? super T>> callbacks = new ArrayList<Callback<? super T>>(2);
+
+    private AsyncTask(Callable<T> callable) {
+        super(callable);
+    }
+
+    /**
+     * Submits the callable to the executor
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the executor rejects the task
+     */
+    public static <T> AsyncResult<T> submit(Executor executor, Callable<T> callable) {
+        AsyncTask<T> task = new AsyncTask<T>(callable);
+        executor.execute(task);
+        return task;
+    }
+
+    @Override
+    public AsyncResult<T> onComplete(Callback<? super T> callback) {
+        Parameters.requireNonNull(callback, "callback");
+
+        synchronized (this) {
+            // get() returns as soon as the task completes, which can be before done() is called
+            if (callbacks != null && !isDone()) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        complete(callback);
+        return this;
+    }
+
+    @Override
+    protected void done() {
+        List<Callback<? super T>> completed;
+        synchronized (this) {
+            completed = callbacks;
+            callbacks = null;
+        }
+        for (Callback<? super T> callback : completed) {
+            try {
+                complete(callback);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Callback " + callback + " failed", e);
+            }
+        }
+    }
+
+    private void complete(Callback<? super T> callback) {
+        T result;
+        try {
+            result = get();
+        } catch (CancellationException e) {
+            callback.onFailure(e);
+            return;
+        } catch (ExecutionException e) {
+            callback.onFailure(e.getCause());
+            return;
+        } catch (InterruptedException e) {
+            // The task is done, so get() does not block
+            Thread.currentThread().interrupt();
+            callback.onFailure(e);
+            return;
+        }
+        callback.onSuccess(result);
+    }
+}
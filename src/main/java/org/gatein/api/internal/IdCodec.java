@@ -0,0 +1,223 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.gatein.api.internal;
+
+import org.gatein.api.page.PageId;
+import org.gatein.api.site.SiteId;
+import org.gatein.api.site.SiteType;
+
+/**
+ * Encodes and decodes the string forms of {@link SiteId} and {@link PageId} without regular expressions or
+ * <code>String.format</code>. The supported forms are:
+ * <ul>
+ * <li><code>Site.Id[type=space, name=/platform/users]</code> and
+ * <code>Page.Id[siteId=[type=space, name=/platform/users], pageName=home]</code> (toString)</li>
+ * <li><code>type=space, name=/platform/users</code> and <code>siteId=[type=space, name=/platform/users], pageName=home</code>
+ * (<code>%s</code>)</li>
+ * <li><code>space.~platform~users</code> and <code>space.~platform~users.home</code> (<code>%#s</code>, URL safe)</li>
+ * </ul>
+ */
+public final class IdCodec {
+    private static final String SITE_ID_PREFIX = "Site.Id[";
+    private static final String PAGE_ID_PREFIX = "Page.Id[";
+    private static final String TYPE = "type=";
+    private static final String NAME = ", name=";
+    private static final String SITE_ID = "siteId=[";
+    private static final String PAGE_NAME = "], pageName=";
+
+    private static final SiteType[] SITE_TYPES = SiteType.values();
+
+    private IdCodec() {
+    }
+
+    public static String siteIdToString(SiteType type, String name) {
+        return appendSiteId(new StringBuilder(SITE_ID_PREFIX), type, name).append(']').toString();
+    }
+
+    public static String siteIdToFormattedString(SiteType type, String name) {
+        return appendSiteId(new StringBuilder(), type, name).toString();
+    }
+
+    public static String siteIdToUrlSafeString(SiteType type, String name) {
+        return appendUrlSafeSiteId(new StringBuilder(), type, name).toString();
+    }
+
+    public static String pageIdToString(SiteId siteId, String pageName) {
+        StringBuilder sb = new StringBuilder(PAGE_ID_PREFIX).append(SITE_ID);
+        return appendSiteId(sb, siteId.getType(), siteId.getName()).append(PAGE_NAME).append(pageName).append(']').toString();
+    }
+
+    public static String pageIdToFormattedString(SiteId siteId, String pageName) {
+        StringBuilder sb = new StringBuilder(SITE_ID);
+        return appendSiteId(sb, siteId.getType(), siteId.getName()).append(PAGE_NAME).append(pageName).toString();
+    }
+
+    public static String pageIdToUrlSafeString(SiteId siteId, String pageName) {
+        StringBuilder sb = appendUrlSafeSiteId(new StringBuilder(), siteId.getType(), siteId.getName());
+        return sb.append('.').append(pageName).toString();
+    }
+
+    /**
+     * Decodes a site id from any of the supported forms.
+     *
+     * @param id the string form of the site id
+     * @return the site id
+     * @throws IllegalArgumentException if id is null or has an unknown syntax
+     */
+    public static SiteId decodeSiteId(String id) {
+        Parameters.requireNonNull(id, "idAsString");
+
+        if (id.startsWith(SITE_ID_PREFIX + TYPE)) {
+            int typeStart = SITE_ID_PREFIX.length() + TYPE.length();
+            int typeEnd = id.indexOf(',', typeStart);
+            int nameStart = (typeEnd < 0) ? -1 : id.indexOf("name=", typeEnd);
+            if (nameStart < 0)
+                throw unknownSyntax(id);
+
+            return new SiteId(siteType(id, typeStart, typeEnd), id.substring(nameStart + 5, id.length() - 1));
+        }
+
+        return decodeSiteId(id, 0, id.length());
+    }
+
+    /**
+     * Decodes a page id from any of the supported forms.
+     *
+     * @param id the string form of the page id
+     * @return the page id
+     * @throws IllegalArgumentException if id is null or has an unknown syntax
+     */
+    public static PageId decodePageId(String id) {
+        Parameters.requireNonNull(id, "idAsString");
+
+        int start = 0;
+        int end = id.length();
+        if (id.startsWith(PAGE_ID_PREFIX)) {
+            start = PAGE_ID_PREFIX.length();
+            end--; // cut off trailing ]
+        }
+
+        int separator;
+        int pageNameStart;
+        SiteId siteId;
+        if (id.startsWith(SITE_ID, start)) {
+            separator = id.lastIndexOf(PAGE_NAME, end - PAGE_NAME.length());
+            if (separator < start + SITE_ID.length())
+                throw unknownSyntax(id);
+
+            siteId = decodeSiteId(id, start + SITE_ID.length(), separator);
+            pageNameStart = separator + PAGE_NAME.length();
+        } else {
+            separator = id.lastIndexOf('.', end - 1);
+            if (separator < start)
+                throw unknownSyntax(id);
+
+            siteId = decodeSiteId(id, start, separator);
+            pageNameStart = separator + 1;
+        }
+
+        return new PageId(siteId, id.substring(pageNameStart, end));
+    }
+
+    /**
+     * Decodes the <code>%s</code> or <code>%#s</code> form of a site id found between start and end.
+     */
+    private static SiteId decodeSiteId(String id, int start, int end) {
+        int typeStart;
+        int typeEnd;
+        int nameStart;
+        if (id.startsWith(TYPE, start)) {
+            typeStart = start + TYPE.length();
+            typeEnd = id.indexOf(NAME, typeStart);
+            nameStart = typeEnd + NAME.length();
+        } else {
+            typeStart = start;
+            typeEnd = id.indexOf('.', typeStart);
+            nameStart = typeEnd + 1;
+        }
+
+        if (typeEnd < 0 || nameStart > end || !isType(id, typeStart, typeEnd))
+            throw unknownSyntax(id);
+
+        return new SiteId(siteType(id, typeStart, typeEnd), decodeName(id, nameStart, end));
+    }
+
+    private static StringBuilder appendSiteId(StringBuilder sb, SiteType type, String name) {
+        return sb.append(TYPE).append(type.getName()).append(NAME).append(name);
+    }
+
+    private static StringBuilder appendUrlSafeSiteId(StringBuilder sb, SiteType type, String name) {
+        return sb.append(type.getName()).append('.').append(name.replace('/', '~'));
+    }
+
+    /**
+     * Type names are 4 to 9 word characters
+     */
+    private static boolean isType(String id, int start, int end) {
+        int length = end - start;
+        if (length < 4 || length > 9)
+            return false;
+
+        for (int i = start; i < end; i++) {
+            char c = id.charAt(i);
+            if (!(isAlphanumeric(c) || c == '_'))
+                return false;
+        }
+        return true;
+    }
+
+    private static SiteType siteType(String id, int start, int end) {
+        int length = end - start;
+        for (SiteType type : SITE_TYPES) {
+            String name = type.getName();
+            if (name.length() == length && id.regionMatches(start, name, 0, length))
+                return type;
+        }
+        throw new IllegalArgumentException("Unknown site type in id string " + id);
+    }
+
+    /**
+     * Names consist of alphanumeric characters and any of '-', '_', '/' and '~', where '~' is decoded to '/'
+     */
+    private static String decodeName(String id, int start, int end) {
+        boolean encoded = false;
+        for (int i = start; i < end; i++) {
+            char c = id.charAt(i);
+            if (c == '~') {
+                encoded = true;
+            } else if (!(isAlphanumeric(c) || c == '-' || c == '_' || c == '/')) {
+                throw unknownSyntax(id);
+            }
+        }
+
+        String name = id.substring(start, end);
+        return encoded ? name.replace('~', '/') : name;
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static IllegalArgumentException unknownSyntax(String id) {
+        return new IllegalArgumentException("Unknown syntax for id string " + id);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.gatein.api.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A pool of canonical instances of immutable values. Instances are weakly referenced, so values no longer used
+ * outside of the pool are garbage collected. The pool is split into segments to reduce lock contention.
+ */
+public final class Interner<T> {
+    private static final int SEGMENTS = 16;
+
+    private final List<Map<T, WeakReference<T>>> segments;
+
+    public Interner() {
+        segments = new ArrayList<Map<T, WeakReference<T>>>(SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments.add(new WeakHashMap<T, WeakReference<T>>());
+        }
+    }
+
+    /**
+     * Returns the canonical instance equal to the specified value, adding the value to the pool if no such instance
+     * exists.
+     *
+     * @param value the value
+     * @return the canonical instance
+     */
+    public T intern(T value) {
+        Parameters.requireNonNull(value, "value");
+
+        int h = value.hashCode();
+        Map<T, WeakReference<T>> segment = segments.get((h ^ (h >>> 16)) & (SEGMENTS - 1));
+        synchronized (segment) {
+            WeakReference<T> ref = segment.get(value);
+            T canonical = (ref == null) ? null : ref.get();
+            if (canonical == null) {
+                segment.put(value, new WeakReference<T>(value));
+                canonical = value;
+            }
+            return canonical;
+        }
+    }
+}
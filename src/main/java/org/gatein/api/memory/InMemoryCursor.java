@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.NoSuchElementException;
+
+import org.gatein.api.common.Cursor;
+
+/**
+ * Base class of the cursors of {@link InMemoryPortal}, which iterate the concurrent indexes of the portal directly. Cursors
+ * find the next stored entity of type S and return a detached result of type T for it.
+ */
+abstract class InMemoryCursor<S, T> implements Cursor<T> {
+    private String token;
+    private S next;
+    private boolean closed;
+
+    InMemoryCursor(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Returns the next stored entity, or null if there are no more entities
+     */
+    abstract S computeNext();
+
+    /**
+     * Returns the continuation token of the position after the specified entity
+     */
+    abstract String tokenOf(S stored);
+
+    /**
+     * Returns the result returned by {@link #next()} for the specified entity
+     */
+    abstract T detach(S stored);
+
+    @Override
+    public boolean hasNext() {
+        if (closed)
+            return false;
+
+        if (next == null) {
+            next = computeNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        return detach(nextStored());
+    }
+
+    /**
+     * Returns the next stored entity, without detaching it
+     */
+    S nextStored() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        S result = next;
+        next = null;
+        token = tokenOf(result);
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public String getContinuationToken() {
+        return token;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        next = null;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.gatein.api.EntityAlreadyExistsException;
+import org.gatein.api.PortalRequest;
+import org.gatein.api.common.Filter;
+import org.gatein.api.common.i18n.LocalizedString;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.navigation.FilteredNode;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.NodePath;
+import org.gatein.api.navigation.PublicationDate;
+import org.gatein.api.navigation.Visibility;
+import org.gatein.api.page.PageId;
+import org.gatein.api.security.Permission;
+import org.gatein.api.security.User;
+
+/**
+ * Filtered view of an {@link InMemoryNode}. Children returned from this view share the same filters.
+ */
+class InMemoryFilteredNode implements FilteredNode {
+    private final InMemoryNode node;
+    private final List<Filter<Node>> filters;
+
+    InMemoryFilteredNode(InMemoryNode node) {
+        this(node, new ArrayList<Filter<Node>>());
+    }
+
+    private InMemoryFilteredNode(InMemoryNode node, List<Filter<Node>> filters) {
+        this.node = node;
+        this.filters = filters;
+    }
+
+    InMemoryNode getNode() {
+        return node;
+    }
+
+    @Override
+    public FilteredNode showAll() {
+        filters.clear();
+        return this;
+    }
+
+    @Override
+    public FilteredNode showDefault() {
+        PortalRequest request = PortalRequest.getInstance();
+        return showVisible().showHasAccess((request == null) ? User.anonymous() : request.getUser());
+    }
+
+    @Override
+    public FilteredNode showVisible() {
+        return show(new Filter<Node>() {
+            @Override
+            public boolean accept(Node element) {
+                return element.isVisible();
+            }
+        });
+    }
+
+    @Override
+    public FilteredNode showHasAccess(final User user) {
+        Parameters.requireNonNull(user, "user");
+
+        final InMemoryPortal portal = node.getNavigation().getPortal();
+        return show(new Filter<Node>() {
+            @Override
+            public boolean accept(Node element) {
+                // A node whose page no longer exists is treated as a node without a page
+                Permission permission = (element.getPageId() == null) ? null : portal.getAccessPermission(element.getPageId());
+                return permission == null || portal.hasPermission(user, permission);
+            }
+        });
+    }
+
+    @Override
+    public FilteredNode showHasEdit(final User user) {
+        Parameters.requireNonNull(user, "user");
+
+        final InMemoryPortal portal = node.getNavigation().getPortal();
+        return show(new Filter<Node>() {
+            @Override
+            public boolean accept(Node element) {
+                Permission permission = (element.getPageId() == null) ? null : portal.getEditPermission(element.getPageId());
+                if (permission == null) {
+                    permission = portal.getEditPermission(node.getNavigation().getSiteId());
+                }
+                return permission != null && portal.hasPermission(user, permission);
+            }
+        });
+    }
+
+    @Override
+    public FilteredNode show(Filter<Node> filter) {
+        filters.add(Parameters.requireNonNull(filter, "filter"));
+        return this;
+    }
+
+    // ----------------- Child operations, which consider the filters
+
+    @Override
+    public Node getChild(String childName) throws IllegalArgumentException, IllegalStateException {
+        Node child = node.getChild(childName);
+        return (child != null && accept(child)) ? wrap(child) : null;
+    }
+
+    @Override
+    public Node getChild(int index) throws IndexOutOfBoundsException, IllegalStateException {
+        return filteredChildren().get(index);
+    }
+
+    @Override
+    public int getChildCount() throws IllegalStateException {
+        return filteredChildren().size();
+    }
+
+    @Override
+    public boolean hasChild(String childName) throws IllegalArgumentException, IllegalStateException {
+        return getChild(childName) != null;
+    }
+
+    @Override
+    public int indexOf(String childName) throws IllegalArgumentException {
+        Parameters.requireNonNull(childName, "childName");
+
+        List<Node> children = filteredChildren();
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i).getName().equals(childName))
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public Node getNode(String... nodePath) throws IllegalArgumentException, IllegalStateException {
+        return getNode(NodePath.path(nodePath));
+    }
+
+    @Override
+    public Node getNode(NodePath nodePath) throws IllegalArgumentException, IllegalStateException {
+        Parameters.requireNonNull(nodePath, "nodePath");
+
+        Node current = this;
+        for (String segment : nodePath) {
+            current = current.getChild(segment);
+            if (current == null)
+                return null;
+        }
+        return current;
+    }
+
+    @Override
+    public boolean removeChild(String childName) throws IllegalArgumentException {
+        return hasChild(childName) && node.removeChild(childName);
+    }
+
+    @Override
+    public Iterator<Node> iterator() {
+        return Collections.unmodifiableList(filteredChildren()).iterator();
+    }
+
+    @Override
+    public FilteredNode filter() throws IllegalArgumentException {
+        return new InMemoryFilteredNode(node, new ArrayList<Filter<Node>>(filters));
+    }
+
+    private boolean accept(Node child) {
+        for (Filter<Node> filter : filters) {
+            if (!filter.accept(child))
+                return false;
+        }
+        return true;
+    }
+
+    private Node wrap(Node child) {
+        return new InMemoryFilteredNode((InMemoryNode) child, filters);
+    }
+
+    private List<Node> filteredChildren() {
+        List<Node> children = new ArrayList<Node>(node.getChildCount());
+        for (Node child : node) {
+            if (accept(child))
+                children.add(wrap(child));
+        }
+        return children;
+    }
+
+    // ----------------- Delegating operations
+
+    @Override
+    public Node addChild(String childName) throws IllegalArgumentException, IllegalStateException,
+            EntityAlreadyExistsException {
+        return wrap(node.addChild(childName));
+    }
+
+    @Override
+    public Node addChild(int index, String childName) throws IllegalArgumentException, IllegalStateException,
+            IndexOutOfBoundsException, EntityAlreadyExistsException {
+        return wrap(node.addChild(index, childName));
+    }
+
+    @Override
+    public String getName() {
+        return node.getName();
+    }
+
+    @Override
+    public void setName(String name) throws IllegalArgumentException {
+        node.setName(name);
+    }
+
+    @Override
+    public Node getParent() {
+        return node.getParent();
+    }
+
+    @Override
+    public NodePath getNodePath() {
+        return node.getNodePath();
+    }
+
+    @Override
+    public String getURI() {
+        return node.getURI();
+    }
+
+    @Override
+    public boolean isVisible() {
+        return node.isVisible();
+    }
+
+    @Override
+    public Visibility getVisibility() {
+        return node.getVisibility();
+    }
+
+    @Override
+    public void setVisibility(Visibility visibility) throws IllegalArgumentException {
+        node.setVisibility(visibility);
+    }
+
+    @Override
+    public void setVisibility(boolean visible) {
+        node.setVisibility(visible);
+    }
+
+    @Override
+    public void setVisibility(PublicationDate publicationDate) throws IllegalArgumentException {
+        node.setVisibility(publicationDate);
+    }
+
+    @Override
+    public String getIconName() {
+        return node.getIconName();
+    }
+
+    @Override
+    public void setIconName(String iconName) {
+        node.setIconName(iconName);
+    }
+
+    @Override
+    public PageId getPageId() {
+        return node.getPageId();
+    }
+
+    @Override
+    public void setPageId(PageId pageId) {
+        node.setPageId(pageId);
+    }
+
+    @Override
+    public boolean isRoot() {
+        return node.isRoot();
+    }
+
+    @Override
+    public boolean isChildrenLoaded() {
+        return node.isChildrenLoaded();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return node.getDisplayName();
+    }
+
+    @Override
+    public void setDisplayName(String displayName) {
+        node.setDisplayName(displayName);
+    }
+
+    @Override
+    public LocalizedString getDisplayNames() {
+        return node.getDisplayNames();
+    }
+
+    @Override
+    public void setDisplayNames(LocalizedString displayName) {
+        node.setDisplayNames(displayName);
+    }
+
+    @Override
+    public void sort(Comparator<Node> comparator) throws IllegalArgumentException {
+        node.sort(comparator);
+    }
+
+    @Override
+    public void moveTo(int index) throws IndexOutOfBoundsException {
+        node.moveTo(index);
+    }
+
+    @Override
+    public void moveTo(Node parent) throws IllegalArgumentException, EntityAlreadyExistsException {
+        node.moveTo(parent);
+    }
+
+    @Override
+    public void moveTo(int index, Node parent) throws IndexOutOfBoundsException, IllegalArgumentException,
+            EntityAlreadyExistsException {
+        node.moveTo(index, parent);
+    }
+
+    @Override
+    public String toString() {
+        return node.toString();
+    }
+}
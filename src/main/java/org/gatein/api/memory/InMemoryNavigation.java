@@ -0,0 +1,702 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gatein.api.ApiException;
+import org.gatein.api.EntityAlreadyExistsException;
+import org.gatein.api.EntityNotFoundException;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.NodePath;
+import org.gatein.api.navigation.NodeVisitor;
+import org.gatein.api.navigation.Nodes;
+import org.gatein.api.navigation.Visibility;
+import org.gatein.api.page.PageId;
+import org.gatein.api.site.SiteId;
+
+/**
+ * Navigation of a site stored in an {@link InMemoryPortal}. Every node tree handed out is private and mutable, but its nodes
+ * share their state with the immutable stored tree until they are edited; saving replaces the stored tree atomically,
+ * reusing the stored state of every subtree that did not change.
+ * <p>
+ * Because the stored state of a node is replaced whenever the node or one of its descendants changes, the identity of the
+ * stored state serves as the version of a subtree. Refreshing a tree compares versions and only applies the subtrees that
+ * changed since the tree was loaded.
+ * </p>
+ */
+class InMemoryNavigation implements Navigation {
+    private final InMemoryPortal portal;
+    private final SiteId siteId;
+
+    InMemoryNavigation(InMemoryPortal portal, SiteId siteId) {
+        this.portal = portal;
+        this.siteId = siteId;
+    }
+
+    InMemoryPortal getPortal() {
+        return portal;
+    }
+
+    @Override
+    public SiteId getSiteId() {
+        return siteId;
+    }
+
+    @Override
+    public int getPriority() {
+        return data().priority;
+    }
+
+    @Override
+    public void setPriority(int priority) {
+        NavigationData current;
+        do {
+            current = data();
+        } while (!portal.replaceNavigationData(siteId, current, current.withPriority(priority)));
+    }
+
+    @Override
+    public Node getNode(String... nodePath) {
+        return getNode(NodePath.path(nodePath));
+    }
+
+    @Override
+    public Node getNode(NodePath nodePath) {
+        return getNode(nodePath, Nodes.visitNone());
+    }
+
+    @Override
+    public Node getNode(NodePath nodePath, NodeVisitor visitor) {
+        Parameters.requireNonNull(nodePath, "nodePath");
+        Parameters.requireNonNull(visitor, "visitor");
+
+        return getRootNode(Nodes.visitNodes(nodePath, visitor)).getNode(nodePath);
+    }
+
+    @Override
+    public Node getRootNode(NodeVisitor visitor) {
+        Parameters.requireNonNull(visitor, "visitor");
+
+        NodeData root = data().root;
+        InMemoryNode node = new InMemoryNode(this, null, root);
+        load(node, root, NodePath.root(), 0, visitor);
+        return node;
+    }
+
+    @Override
+    public void refreshNode(Node node) {
+        refreshNode(node, Nodes.visitNone());
+    }
+
+    @Override
+    public void refreshNode(Node node, NodeVisitor visitor) {
+        Parameters.requireNonNull(node, "node");
+        Parameters.requireNonNull(visitor, "visitor");
+
+        InMemoryNode root = InMemoryNode.unwrap(node).getRoot();
+        NodeChanges changes = root.getChanges();
+        List<InMemoryNode> moved = changes.getNodes(NodeChanges.Change.MOVE);
+        NavigationData current = data();
+        refresh(root, current.root, NodePath.root(), 0, visitor, changes);
+        for (InMemoryNode movedNode : moved) {
+            reconcileMove(root, movedNode, current, visitor, changes);
+        }
+    }
+
+    @Override
+    public boolean removeNode(NodePath nodePath) throws IllegalArgumentException, EntityNotFoundException {
+        Parameters.requireNonNull(nodePath, "nodePath");
+        if (nodePath.size() == 0)
+            throw new IllegalArgumentException("Cannot remove the root node");
+
+        String[] segments = nodePath.asArray();
+        NavigationData current;
+        NavigationData updated;
+        do {
+            current = data();
+            NodeData root = remove(current.root, segments, 0);
+            if (root == null)
+                throw new EntityNotFoundException("Node " + nodePath + " not found for site " + siteId);
+
+            updated = new NavigationData(current.priority, root);
+        } while (!portal.replaceNavigationData(siteId, current, updated));
+
+        return true;
+    }
+
+    @Override
+    public void saveNode(Node node) throws IllegalArgumentException, ApiException {
+        Parameters.requireNonNull(node, "node");
+
+        InMemoryNode root = InMemoryNode.unwrap(node).getRoot();
+        if (root.getNavigation().getPortal() != portal || !siteId.equals(root.getNavigation().getSiteId()))
+            throw new IllegalArgumentException("Node " + node + " does not belong to the navigation of site " + siteId);
+
+        NodeChanges changes = root.getChanges();
+        for (InMemoryNode added : changes.getNodes(NodeChanges.Change.ADD)) {
+            if (added.getId() == null)
+                added.setId(portal.nextId());
+        }
+
+        Set<InMemoryNode> changed = changes.getPaths();
+        NavigationData current;
+        NodeData stored;
+        do {
+            current = data();
+            stored = new TreeWriter(current, changes, changed).write(root);
+        } while (stored != current.root
+                && !portal.replaceNavigationData(siteId, current, new NavigationData(current.priority, stored)));
+
+        saved(root, stored, changed);
+        changes.clear();
+    }
+
+    private NavigationData data() {
+        NavigationData data = portal.getNavigationData(siteId);
+        if (data == null)
+            throw new EntityNotFoundException("Navigation for site " + siteId + " does not exist");
+
+        return data;
+    }
+
+    /**
+     * Loads the children of a node left unloaded by an on demand visitor, together with the children of its unloaded
+     * siblings, from the stored state the nodes were loaded from. Loads are made under the lock of the parent, so a node
+     * accessed by several threads at once is loaded only once.
+     */
+    void loadOnDemand(InMemoryNode node) {
+        InMemoryNode parent = node.getParentNode();
+        synchronized ((parent == null) ? node : parent) {
+            if (node.isChildrenLoaded())
+                return;
+
+            if (parent == null) {
+                loadChildren(node);
+            } else {
+                for (InMemoryNode sibling : parent.getChildren()) {
+                    if (!sibling.isChildrenLoaded() && sibling.isLoadOnDemand()) {
+                        loadChildren(sibling);
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadChildren(InMemoryNode node) {
+        List<NodeData> data = node.getData().children;
+        List<InMemoryNode> children = new ArrayList<InMemoryNode>(data.size());
+        for (NodeData childData : data) {
+            InMemoryNode child = new InMemoryNode(this, node, childData);
+            child.setLoadOnDemand(true);
+            children.add(child);
+        }
+        node.setChildren(children);
+    }
+
+    private void load(InMemoryNode node, NodeData data, NodePath path, int depth, NodeVisitor visitor) {
+        if (!visit(data, path, depth, visitor)) {
+            node.setLoadOnDemand(Nodes.isLoadOnDemand(visitor));
+            return;
+        }
+
+        List<InMemoryNode> children = new ArrayList<InMemoryNode>(data.children.size());
+        for (NodeData childData : data.children) {
+            InMemoryNode child = new InMemoryNode(this, node, childData);
+            load(child, childData, path.append(childData.name), depth + 1, visitor);
+            children.add(child);
+        }
+        node.setChildren(children);
+    }
+
+    /**
+     * Refreshes the nodes which changed in storage and keeps the local changes of the subtrees which did not. The local
+     * edits of a changed node are kept for the fields which did not change in storage, and its locally added children are
+     * kept among the stored ones unless their names are now taken. Local renames which collide with the names of stored
+     * siblings are discarded, while local moves are reconciled once the whole tree is refreshed.
+     */
+    private void refresh(InMemoryNode node, NodeData data, NodePath path, int depth, NodeVisitor visitor,
+            NodeChanges changes) {
+        if (node.getData() == data) {
+            loadUnchanged(node, path, depth, visitor);
+            return;
+        }
+
+        NodeData previous = node.getData();
+        Set<NodeChanges.Change> kept = EnumSet.noneOf(NodeChanges.Change.class);
+        for (NodeChanges.Change kind : new ArrayList<NodeChanges.Change>(changes.get(node))) {
+            if (isUnchanged(kind, previous, data)) {
+                kept.add(kind);
+            } else {
+                changes.forget(node, kind);
+            }
+        }
+        node.rebase(data, kept);
+        if (!node.isChildrenLoaded()) {
+            load(node, data, path, depth, visitor);
+            return;
+        }
+
+        Map<String, InMemoryNode> existing = new HashMap<String, InMemoryNode>();
+        for (InMemoryNode child : node.getChildren()) {
+            if (child.getId() != null)
+                existing.put(child.getId(), child);
+        }
+
+        List<InMemoryNode> children = new ArrayList<InMemoryNode>(data.children.size());
+        for (NodeData childData : data.children) {
+            NodePath childPath = path.append(childData.name);
+            InMemoryNode child = existing.get(childData.id);
+            if (child == null) {
+                child = new InMemoryNode(this, node, childData);
+                load(child, childData, childPath, depth + 1, visitor);
+            } else {
+                refresh(child, childData, childPath, depth + 1, visitor, changes);
+            }
+            children.add(child);
+        }
+        discardNameCollisions(children, changes);
+        if (mergeAdded(node.getChildren(), children, changes)) {
+            changes.record(node, NodeChanges.Change.CHILDREN);
+        }
+        node.setChildren(children);
+    }
+
+    /**
+     * Whether the field written for a kind of change is the same in both stored states, so the local edit can be kept
+     */
+    private static boolean isUnchanged(NodeChanges.Change kind, NodeData previous, NodeData data) {
+        switch (kind) {
+            case RENAME:
+                return previous.name.equals(data.name);
+            case PAGE:
+                return equal(previous.pageId, data.pageId);
+            case VISIBILITY:
+                return equal(previous.visibility, data.visibility);
+            case UPDATE:
+                return equal(previous.displayNames, data.displayNames) && equal(previous.iconName, data.iconName);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean equal(Object o1, Object o2) {
+        return (o1 == null) ? o2 == null : o1.equals(o2);
+    }
+
+    /**
+     * Puts the locally added children back among the refreshed children, after the local sibling they followed. Added
+     * children whose names are taken by the refreshed children are dropped, as stored names win.
+     *
+     * @return whether any added child was kept
+     */
+    private static boolean mergeAdded(List<InMemoryNode> local, List<InMemoryNode> children, NodeChanges changes) {
+        Set<String> names = null;
+        InMemoryNode previous = null;
+        boolean merged = false;
+        for (InMemoryNode child : local) {
+            if (changes.get(child).contains(NodeChanges.Change.ADD)) {
+                if (names == null) {
+                    names = new HashSet<String>();
+                    for (InMemoryNode refreshed : children) {
+                        names.add(refreshed.getName());
+                    }
+                }
+                if (!names.add(child.getName())) {
+                    changes.forget(child);
+                    continue;
+                }
+
+                children.add((previous == null) ? 0 : children.indexOf(previous) + 1, child);
+                merged = true;
+            } else if (!children.contains(child)) {
+                continue;
+            }
+            previous = child;
+        }
+        return merged;
+    }
+
+    /**
+     * Discards the local renames of the refreshed children which collide with the names of other children, until the names
+     * are unique. Stored names are unique, so this ends at the latest once every renamed child has its stored name again.
+     */
+    private static void discardNameCollisions(List<InMemoryNode> children, NodeChanges changes) {
+        Map<String, Integer> names = new HashMap<String, Integer>();
+        List<InMemoryNode> renamed = new ArrayList<InMemoryNode>();
+        for (InMemoryNode child : children) {
+            Integer count = names.get(child.getName());
+            names.put(child.getName(), (count == null) ? 1 : count + 1);
+            if (!child.getName().equals(child.getData().name)) {
+                renamed.add(child);
+            }
+        }
+
+        boolean discarded = !renamed.isEmpty();
+        while (discarded) {
+            discarded = false;
+            for (Iterator<InMemoryNode> iterator = renamed.iterator(); iterator.hasNext();) {
+                InMemoryNode child = iterator.next();
+                if (names.get(child.getName()) > 1) {
+                    names.put(child.getName(), names.get(child.getName()) - 1);
+                    child.discardName();
+                    changes.forget(child, NodeChanges.Change.RENAME);
+                    Integer count = names.get(child.getName());
+                    names.put(child.getName(), (count == null) ? 1 : count + 1);
+                    iterator.remove();
+                    discarded = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconciles a node moved to another parent locally with the refreshed tree. The move is kept if neither the parent it
+     * was moved from nor the one it was moved to was refreshed. Otherwise the stored parent wins: the node is removed from
+     * its local parent if the refresh loaded it where it is stored, and put back where it is stored if the refresh dropped
+     * it from its local parent.
+     */
+    private void reconcileMove(InMemoryNode root, InMemoryNode node, NavigationData current, NodeVisitor visitor,
+            NodeChanges changes) {
+        NodeData data = current.get(node.getId());
+        NodeData parentData = current.getParent(node.getId());
+        InMemoryNode parent = (parentData == null) ? null : findLoaded(root, parentData, current);
+        InMemoryNode stored = (parent == null || !parent.isChildrenLoaded()) ? null : findChild(parent, data);
+
+        if (node.isAttached() && node.getRoot() == root) {
+            if (stored != null && stored != node) {
+                node.detach();
+                changes.forget(node);
+            }
+        } else if (node.getParentNode() != null && stored == null && parent != null && parent.isChildrenLoaded()
+                && parent.isAttached() && !parent.hasChild(node.getName())) {
+            // A node without a parent was removed locally, while the others were dropped by the refresh
+            node.attach(parent, parentData.children.indexOf(data));
+            changes.forget(node, NodeChanges.Change.MOVE);
+            NodePath path = node.getNodePath();
+            refresh(node, data, path, path.size(), visitor, changes);
+        }
+    }
+
+    /**
+     * Finds the local node of the stored node by following its stored ancestors, or null if it is not loaded
+     */
+    private static InMemoryNode findLoaded(InMemoryNode root, NodeData data, NavigationData current) {
+        if (data == current.root)
+            return root;
+
+        InMemoryNode parent = findLoaded(root, current.getParent(data.id), current);
+        return (parent == null || !parent.isChildrenLoaded()) ? null : findChild(parent, data);
+    }
+
+    private static InMemoryNode findChild(InMemoryNode parent, NodeData data) {
+        InMemoryNode child = (InMemoryNode) parent.getChild(data.name);
+        if (child != null && data.id.equals(child.getId()))
+            return child;
+
+        // The child may have been renamed locally
+        for (InMemoryNode other : parent.getChildren()) {
+            if (data.id.equals(other.getId()))
+                return other;
+        }
+        return null;
+    }
+
+    /**
+     * Loads the nodes the visitor asks for in a subtree which has not changed in storage since it was loaded, keeping any
+     * local changes. Nothing needs to be visited when the visitor loads no nodes.
+     */
+    private void loadUnchanged(InMemoryNode node, NodePath path, int depth, NodeVisitor visitor) {
+        if (visitor == Nodes.visitNone())
+            return;
+
+        if (!node.isChildrenLoaded()) {
+            load(node, node.getData(), path, depth, visitor);
+            return;
+        }
+
+        for (InMemoryNode child : node.getChildren()) {
+            if (child.getData() != null) {
+                loadUnchanged(child, path.append(child.getName()), depth + 1, visitor);
+            }
+        }
+    }
+
+    /**
+     * Makes the written nodes of a saved tree share the stored state again, and gives them the children they were written
+     * with, which may include children saved concurrently by others. Other nodes keep the state they were loaded from until
+     * they are refreshed.
+     */
+    private void saved(InMemoryNode node, NodeData data, Set<InMemoryNode> changed) {
+        if (!changed.contains(node))
+            return;
+
+        node.update(data);
+        if (!node.isChildrenLoaded())
+            return;
+
+        Map<String, InMemoryNode> existing = new HashMap<String, InMemoryNode>();
+        for (InMemoryNode child : node.getChildren()) {
+            existing.put(child.getId(), child);
+        }
+
+        List<InMemoryNode> children = new ArrayList<InMemoryNode>(data.children.size());
+        for (NodeData childData : data.children) {
+            InMemoryNode child = existing.get(childData.id);
+            if (child == null) {
+                child = new InMemoryNode(this, node, childData);
+            } else {
+                saved(child, childData, changed);
+            }
+            children.add(child);
+        }
+        node.setChildren(children);
+    }
+
+    private static NodeData remove(NodeData data, String[] segments, int index) {
+        String name = segments[index];
+        NodeData child = data.getChild(name);
+        if (child == null)
+            return null;
+
+        List<NodeData> children = new ArrayList<NodeData>(data.children);
+        if (index == segments.length - 1) {
+            children.remove(child);
+        } else {
+            NodeData updated = remove(child, segments, index + 1);
+            if (updated == null)
+                return null;
+
+            children.set(children.indexOf(child), updated);
+        }
+
+        return new NodeData(data.id, data.name, data.displayNames, data.visibility, data.iconName, data.pageId, children);
+    }
+
+    /**
+     * Builds the stored state of a tree from the latest stored state. Only the changed nodes and their ancestors are
+     * written; every other subtree is taken as currently stored, which keeps changes saved concurrently by others. What is
+     * written for a node depends on the kinds of changes made to it:
+     * <ul>
+     * <li>its own state is written if it was added, and otherwise taken as currently stored with only the edited fields
+     * written over it: the name when renamed, the page, the visibility, and the display names and icon when updated;</li>
+     * <li>its children are written in their local order if they were added, removed or moved, and otherwise the currently
+     * stored children are kept, with the changed ones written in place;</li>
+     * <li>a node missing from the latest state of its parent is looked up by id if it was moved there, and left out
+     * otherwise, as it was moved or removed concurrently.</li>
+     * </ul>
+     */
+    private static final class TreeWriter {
+        private static final Set<NodeChanges.Change> STATE_CHANGES = EnumSet.of(NodeChanges.Change.RENAME,
+                NodeChanges.Change.PAGE, NodeChanges.Change.VISIBILITY, NodeChanges.Change.UPDATE);
+
+        private final NavigationData current;
+        private final NodeChanges changes;
+        private final Set<InMemoryNode> changed;
+
+        /**
+         * The state written for nodes moved from a parent which was not written, whose stored state is left behind there
+         */
+        private final Map<String, NodeData> relocated = new HashMap<String, NodeData>();
+
+        /**
+         * The ids of the stored children left out of the written parents
+         */
+        private final Set<String> dropped = new HashSet<String>();
+
+        TreeWriter(NavigationData current, NodeChanges changes, Set<InMemoryNode> changed) {
+            this.current = current;
+            this.changes = changes;
+            this.changed = changed;
+        }
+
+        NodeData write(InMemoryNode root) {
+            NodeData stored = store(root, current.root);
+            relocated.keySet().removeAll(dropped);
+            return relocated.isEmpty() ? stored : prune(stored);
+        }
+
+        /**
+         * @param latest the latest stored state of the node, or null if it is new or is not below its latest parent
+         * @return the stored state, or null if the node is left out
+         */
+        private NodeData store(InMemoryNode node, NodeData latest) {
+            Set<NodeChanges.Change> kinds = changes.get(node);
+            boolean moved = false;
+            if (latest == null && !kinds.contains(NodeChanges.Change.ADD)) {
+                if (!kinds.contains(NodeChanges.Change.MOVE))
+                    return null;
+
+                latest = current.get(node.getId());
+                moved = latest != null;
+            }
+            if (!changed.contains(node))
+                return latest;
+
+            List<NodeData> children;
+            if (!node.isChildrenLoaded()) {
+                children = (latest == null) ? Collections.<NodeData> emptyList() : latest.children;
+            } else if (latest == null || kinds.contains(NodeChanges.Change.CHILDREN)) {
+                children = storeChildren(node, latest);
+            } else {
+                children = mergeChildren(node, latest);
+            }
+
+            NodeData data;
+            if (latest == null) {
+                data = new NodeData(node.getId(), node.getName(), node.getSharedDisplayNames(), node.getVisibility(),
+                        node.getIconName(), node.getPageId(), children);
+            } else {
+                // A moved node is written as a new state, which tells it apart from the state left behind
+                if (children == latest.children && !moved && Collections.disjoint(kinds, STATE_CHANGES))
+                    return latest;
+
+                boolean updated = kinds.contains(NodeChanges.Change.UPDATE);
+                data = new NodeData(latest.id,
+                        kinds.contains(NodeChanges.Change.RENAME) ? node.getName() : latest.name,
+                        updated ? node.getSharedDisplayNames() : latest.displayNames,
+                        kinds.contains(NodeChanges.Change.VISIBILITY) ? node.getVisibility() : latest.visibility,
+                        updated ? node.getIconName() : latest.iconName,
+                        kinds.contains(NodeChanges.Change.PAGE) ? node.getPageId() : latest.pageId, children);
+            }
+            if (moved) {
+                relocated.put(data.id, data);
+            }
+            return data;
+        }
+
+        /**
+         * Writes the children in their local order
+         */
+        private List<NodeData> storeChildren(InMemoryNode node, NodeData latest) {
+            Map<String, NodeData> latestChildren = new HashMap<String, NodeData>();
+            if (latest != null) {
+                for (NodeData child : latest.children) {
+                    latestChildren.put(child.id, child);
+                }
+            }
+
+            List<NodeData> children = new ArrayList<NodeData>(node.getChildren().size());
+            for (InMemoryNode child : node.getChildren()) {
+                NodeData stored = store(child, latestChildren.remove(child.getId()));
+                if (stored != null) {
+                    children.add(stored);
+                }
+            }
+            dropped.addAll(latestChildren.keySet());
+            return checkNames(node, children);
+        }
+
+        /**
+         * Keeps the latest children, writing the changed ones in place. Returns the latest children if none of them changed.
+         */
+        private List<NodeData> mergeChildren(InMemoryNode node, NodeData latest) {
+            Map<String, InMemoryNode> changedChildren = new HashMap<String, InMemoryNode>();
+            for (InMemoryNode child : node.getChildren()) {
+                if (changed.contains(child)) {
+                    changedChildren.put(child.getId(), child);
+                }
+            }
+
+            boolean same = true;
+            List<NodeData> children = new ArrayList<NodeData>(latest.children.size());
+            for (NodeData latestChild : latest.children) {
+                InMemoryNode child = changedChildren.get(latestChild.id);
+                NodeData stored = (child == null) ? latestChild : store(child, latestChild);
+                same = same && stored == latestChild;
+                children.add(stored);
+            }
+            return same ? latest.children : checkNames(node, children);
+        }
+
+        private static List<NodeData> checkNames(InMemoryNode node, List<NodeData> children) {
+            Set<String> names = new HashSet<String>();
+            for (NodeData child : children) {
+                if (!names.add(child.name))
+                    throw new EntityAlreadyExistsException("Node with name " + child.name + " already exists at "
+                            + node.getNodePath());
+            }
+            return children;
+        }
+
+        /**
+         * Leaves out the stored state of relocated nodes from where they were moved
+         */
+        private NodeData prune(NodeData data) {
+            List<NodeData> children = null;
+            for (int i = 0; i < data.children.size(); i++) {
+                NodeData child = data.children.get(i);
+                NodeData relocatedChild = relocated.get(child.id);
+                NodeData pruned = (relocatedChild != null && relocatedChild != child) ? null : prune(child);
+                if (pruned != child && children == null) {
+                    children = new ArrayList<NodeData>(data.children.subList(0, i));
+                }
+                if (children != null && pruned != null) {
+                    children.add(pruned);
+                }
+            }
+
+            if (children == null)
+                return data;
+
+            return new NodeData(data.id, data.name, data.displayNames, data.visibility, data.iconName, data.pageId, children);
+        }
+    }
+
+    private static boolean visit(final NodeData data, final NodePath path, int depth, NodeVisitor visitor) {
+        if (depth == 0)
+            return visitor.visit(0, null, null);
+
+        return visitor.visit(depth, data.name, new NodeVisitor.NodeDetails() {
+            @Override
+            public Visibility getVisibility() {
+                return data.visibility;
+            }
+
+            @Override
+            public String getIconName() {
+                return data.iconName;
+            }
+
+            @Override
+            public PageId getPageId() {
+                return data.pageId;
+            }
+
+            @Override
+            public NodePath getNodePath() {
+                return path;
+            }
+        });
+    }
+}
@@ -0,0 +1,691 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.gatein.api.EntityAlreadyExistsException;
+import org.gatein.api.PortalRequest;
+import org.gatein.api.common.i18n.LocalizedString;
+import org.gatein.api.internal.ObjectToStringBuilder;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.navigation.FilteredNode;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.NodePath;
+import org.gatein.api.navigation.PublicationDate;
+import org.gatein.api.navigation.Visibility;
+import org.gatein.api.page.PageId;
+
+/**
+ * Mutable node handed out by {@link InMemoryNavigation}. A node without loaded children has a <code>null</code> children
+ * list.
+ * <p>
+ * A node loaded from storage reads its state from the immutable {@link NodeData} it was loaded from, which is shared with
+ * every other tree loaded from the same navigation. The state is copied into the node only when it is first edited, so
+ * trees that are only read cost little more than the list of their loaded nodes.
+ * </p>
+ * <p>
+ * Edits are recorded in the {@link NodeChanges} of the root node, so saving writes only the changed nodes and their
+ * ancestors.
+ * </p>
+ */
+class InMemoryNode implements Node {
+    /**
+     * Children are looked up by name with a linear scan below this number of children, and with an index above
+     */
+    static final int INDEX_THRESHOLD = 8;
+
+    private final transient InMemoryNavigation navigation;
+    private String id;
+    private NodeData data;
+    private boolean edited;
+    private String name;
+    private InMemoryNode parent;
+    private LocalizedString displayNames;
+    private Visibility visibility;
+    private String iconName;
+    private PageId pageId;
+    private volatile List<InMemoryNode> children;
+    private transient volatile Map<String, InMemoryNode> childIndex;
+    private boolean loadOnDemand;
+    private transient NodeChanges changes;
+
+    InMemoryNode(InMemoryNavigation navigation, InMemoryNode parent, String name) {
+        this.navigation = navigation;
+        this.parent = parent;
+        this.name = name;
+        this.visibility = new Visibility();
+        this.children = new ArrayList<InMemoryNode>();
+        this.edited = true;
+    }
+
+    InMemoryNode(InMemoryNavigation navigation, InMemoryNode parent, NodeData data) {
+        this.navigation = navigation;
+        this.parent = parent;
+        update(data);
+    }
+
+    void update(NodeData data) {
+        this.id = data.id;
+        this.data = data;
+        this.edited = false;
+        this.name = null;
+        this.displayNames = null;
+        this.visibility = null;
+        this.iconName = null;
+        this.pageId = null;
+    }
+
+    /**
+     * Moves this node onto a newer stored state, keeping the local state of the given kinds of changes and taking the rest
+     * from the stored state
+     */
+    void rebase(NodeData data, Set<NodeChanges.Change> kept) {
+        if (!edited || kept.isEmpty()) {
+            update(data);
+            return;
+        }
+
+        this.data = data;
+        if (!kept.contains(NodeChanges.Change.RENAME)) {
+            name = data.name;
+        }
+        if (!kept.contains(NodeChanges.Change.UPDATE)) {
+            displayNames = (data.displayNames == null) ? null : new EditableDisplayNames(this, data.displayNames);
+            iconName = data.iconName;
+        }
+        if (!kept.contains(NodeChanges.Change.VISIBILITY)) {
+            visibility = data.visibility;
+        }
+        if (!kept.contains(NodeChanges.Change.PAGE)) {
+            pageId = data.pageId;
+        }
+    }
+
+    /**
+     * The stored state this node was loaded from, or null if the node has not been saved
+     */
+    NodeData getData() {
+        return data;
+    }
+
+    /**
+     * Whether the state of this node may differ from the stored state it was loaded from
+     */
+    boolean isEdited() {
+        return edited;
+    }
+
+    /**
+     * The display names of this node, which must not be modified because they may be shared with the stored state
+     */
+    LocalizedString getSharedDisplayNames() {
+        return edited ? displayNames : data.displayNames;
+    }
+
+    /**
+     * Copies the shared stored state into this node before it is modified
+     */
+    private void edit() {
+        if (edited)
+            return;
+
+        name = data.name;
+        displayNames = (data.displayNames == null) ? null : new EditableDisplayNames(this, data.displayNames);
+        visibility = data.visibility;
+        iconName = data.iconName;
+        pageId = data.pageId;
+        edited = true;
+    }
+
+    InMemoryNavigation getNavigation() {
+        return navigation;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    void setId(String id) {
+        this.id = id;
+    }
+
+    List<InMemoryNode> getChildren() {
+        return children;
+    }
+
+    void setChildren(List<InMemoryNode> children) {
+        this.children = children;
+        this.childIndex = null;
+    }
+
+    boolean isLoadOnDemand() {
+        return loadOnDemand;
+    }
+
+    /**
+     * Sets whether the children of this node, when not loaded, are loaded when first accessed
+     */
+    void setLoadOnDemand(boolean loadOnDemand) {
+        this.loadOnDemand = loadOnDemand;
+    }
+
+    InMemoryNode getParentNode() {
+        return parent;
+    }
+
+    /**
+     * Whether this node is still a child of its parent, and so on up to the root. Nodes dropped from the children of their
+     * parent by a refresh keep referencing the parent.
+     */
+    boolean isAttached() {
+        for (InMemoryNode node = this; node.parent != null; node = node.parent) {
+            if (!node.parent.isChildrenLoaded() || node.parent.findChild(node.getName()) != node)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes this node from the children of its parent without recording a change, when a refresh undoes a local move
+     */
+    void detach() {
+        parent.children.remove(this);
+        if (parent.childIndex != null) {
+            parent.childIndex.remove(getName());
+        }
+        parent = null;
+    }
+
+    /**
+     * Adds this node to the children of the parent without recording a change, when a refresh undoes a local move
+     */
+    void attach(InMemoryNode parent, int index) {
+        parent.children.add(Math.min(index, parent.children.size()), this);
+        if (parent.childIndex != null) {
+            parent.childIndex.put(getName(), this);
+        }
+        this.parent = parent;
+    }
+
+    /**
+     * Discards a local rename, when a refresh finds that it collides with the name of a stored sibling. The index of the
+     * parent is not updated, as the parent is given new children afterwards.
+     */
+    void discardName() {
+        if (edited) {
+            name = data.name;
+        }
+    }
+
+    /**
+     * The changes made to the tree of this node, which is only kept by the root node
+     */
+    NodeChanges getChanges() {
+        InMemoryNode root = getRoot();
+        if (root.changes == null) {
+            root.changes = new NodeChanges();
+        }
+        return root.changes;
+    }
+
+    private void changed(NodeChanges.Change change) {
+        getChanges().record(this, change);
+    }
+
+    InMemoryNode getRoot() {
+        InMemoryNode node = this;
+        while (node.parent != null) {
+            node = node.parent;
+        }
+        return node;
+    }
+
+    @Override
+    public String getName() {
+        return edited ? name : data.name;
+    }
+
+    @Override
+    public void setName(String name) throws IllegalArgumentException {
+        Parameters.requireNonNull(name, "name");
+
+        if (parent != null && !name.equals(getName()) && parent.hasChild(name)) {
+            throw new EntityAlreadyExistsException("Node with name " + name + " already exists at " + parent.getNodePath());
+        }
+        String previous = getName();
+        edit();
+        this.name = name;
+        if (parent != null && parent.childIndex != null) {
+            parent.childIndex.remove(previous);
+            parent.childIndex.put(name, this);
+        }
+        changed(NodeChanges.Change.RENAME);
+    }
+
+    @Override
+    public Node getParent() {
+        return parent;
+    }
+
+    @Override
+    public NodePath getNodePath() {
+        return (parent == null) ? NodePath.root() : parent.getNodePath().append(getName());
+    }
+
+    @Override
+    public String getURI() {
+        PortalRequest request = PortalRequest.getInstance();
+        if (request == null)
+            throw new IllegalStateException("URI can only be resolved within a portal request");
+
+        String siteURI = request.getURIResolver().resolveURI(navigation.getSiteId());
+        if (siteURI.endsWith("/"))
+            siteURI = siteURI.substring(0, siteURI.length() - 1);
+
+        return siteURI + getNodePath();
+    }
+
+    @Override
+    public boolean isVisible() {
+        return getVisibility().isVisible();
+    }
+
+    @Override
+    public Visibility getVisibility() {
+        return edited ? visibility : data.visibility;
+    }
+
+    @Override
+    public void setVisibility(Visibility visibility) throws IllegalArgumentException {
+        Parameters.requireNonNull(visibility, "visibility");
+        edit();
+        this.visibility = visibility;
+        changed(NodeChanges.Change.VISIBILITY);
+    }
+
+    @Override
+    public void setVisibility(boolean visible) {
+        setVisibility(new Visibility(visible ? Visibility.Status.VISIBLE : Visibility.Status.HIDDEN));
+    }
+
+    @Override
+    public void setVisibility(PublicationDate publicationDate) throws IllegalArgumentException {
+        setVisibility(new Visibility(Parameters.requireNonNull(publicationDate, "publicationDate")));
+    }
+
+    @Override
+    public String getIconName() {
+        return edited ? iconName : data.iconName;
+    }
+
+    @Override
+    public void setIconName(String iconName) {
+        edit();
+        this.iconName = iconName;
+        changed(NodeChanges.Change.UPDATE);
+    }
+
+    @Override
+    public PageId getPageId() {
+        return edited ? pageId : data.pageId;
+    }
+
+    @Override
+    public void setPageId(PageId pageId) {
+        edit();
+        this.pageId = pageId;
+        changed(NodeChanges.Change.PAGE);
+    }
+
+    @Override
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        LocalizedString displayNames = getSharedDisplayNames();
+        if (displayNames == null)
+            return null;
+        if (!displayNames.isLocalized())
+            return displayNames.getValue();
+
+        PortalRequest request = PortalRequest.getInstance();
+        Locale locale = (request == null) ? null : request.getLocale();
+        return (locale == null) ? null : displayNames.getValue(locale);
+    }
+
+    @Override
+    public void setDisplayName(String displayName) {
+        edit();
+        changed(NodeChanges.Change.UPDATE);
+        this.displayNames = (displayName == null) ? null : new LocalizedString(displayName);
+    }
+
+    @Override
+    public LocalizedString getDisplayNames() {
+        // The returned display names can be modified by the caller, which records the change when it happens rather than
+        // on every read
+        if (edited)
+            return displayNames;
+
+        return (data.displayNames == null) ? null : new EditableDisplayNames(this, data.displayNames);
+    }
+
+    @Override
+    public void setDisplayNames(LocalizedString displayNames) {
+        edit();
+        this.displayNames = displayNames;
+        changed(NodeChanges.Change.UPDATE);
+    }
+
+    @Override
+    public Node addChild(String childName) throws IllegalArgumentException, IllegalStateException,
+            EntityAlreadyExistsException {
+        checkChildrenLoaded();
+        return addChild(children.size(), childName);
+    }
+
+    @Override
+    public Node addChild(int index, String childName) throws IllegalArgumentException, IllegalStateException,
+            IndexOutOfBoundsException, EntityAlreadyExistsException {
+        Parameters.requireNonNull(childName, "childName");
+        checkChildrenLoaded();
+
+        if (index < 0 || index > children.size())
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range");
+        if (hasChild(childName))
+            throw new EntityAlreadyExistsException("Node with name " + childName + " already exists at " + getNodePath());
+
+        InMemoryNode child = new InMemoryNode(navigation, this, childName);
+        children.add(index, child);
+        if (childIndex != null) {
+            childIndex.put(childName, child);
+        }
+        changed(NodeChanges.Change.CHILDREN);
+        child.changed(NodeChanges.Change.ADD);
+        return child;
+    }
+
+    @Override
+    public Node getChild(String childName) throws IllegalArgumentException, IllegalStateException {
+        Parameters.requireNonNull(childName, "childName");
+        checkChildrenLoaded();
+
+        return findChild(childName);
+    }
+
+    @Override
+    public Node getChild(int index) throws IndexOutOfBoundsException, IllegalStateException {
+        checkChildrenLoaded();
+        return children.get(index);
+    }
+
+    @Override
+    public int getChildCount() throws IllegalStateException {
+        checkChildrenLoaded();
+        return children.size();
+    }
+
+    @Override
+    public boolean hasChild(String childName) throws IllegalArgumentException, IllegalStateException {
+        return getChild(childName) != null;
+    }
+
+    @Override
+    public boolean isChildrenLoaded() {
+        return children != null;
+    }
+
+    @Override
+    public Node getNode(String... nodePath) throws IllegalArgumentException, IllegalStateException {
+        return getNode(NodePath.path(nodePath));
+    }
+
+    @Override
+    public Node getNode(NodePath nodePath) throws IllegalArgumentException, IllegalStateException {
+        Parameters.requireNonNull(nodePath, "nodePath");
+
+        Node node = this;
+        for (String segment : nodePath) {
+            node = node.getChild(segment);
+            if (node == null)
+                return null;
+        }
+        return node;
+    }
+
+    @Override
+    public int indexOf(String childName) throws IllegalArgumentException {
+        Parameters.requireNonNull(childName, "childName");
+        checkChildrenLoaded();
+
+        InMemoryNode child = findChild(childName);
+        if (child != null) {
+            for (int i = 0; i < children.size(); i++) {
+                if (children.get(i) == child)
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean removeChild(String childName) throws IllegalArgumentException {
+        Parameters.requireNonNull(childName, "childName");
+        checkChildrenLoaded();
+
+        InMemoryNode child = findChild(childName);
+        if (child == null)
+            return false;
+
+        changed(NodeChanges.Change.CHILDREN);
+        children.remove(child);
+        if (childIndex != null) {
+            childIndex.remove(childName);
+        }
+        child.parent = null;
+        return true;
+    }
+
+    @Override
+    public FilteredNode filter() throws IllegalArgumentException {
+        return new InMemoryFilteredNode(this);
+    }
+
+    @Override
+    public void sort(Comparator<Node> comparator) throws IllegalArgumentException {
+        Parameters.requireNonNull(comparator, "comparator");
+        checkChildrenLoaded();
+
+        Collections.sort(children, comparator);
+        changed(NodeChanges.Change.CHILDREN);
+    }
+
+    @Override
+    public void moveTo(int index) throws IndexOutOfBoundsException {
+        if (parent == null)
+            throw new IllegalStateException("Cannot move the root node");
+
+        List<InMemoryNode> siblings = parent.children;
+        if (index < 0 || index >= siblings.size())
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range");
+
+        siblings.remove(this);
+        siblings.add(index, this);
+        parent.changed(NodeChanges.Change.CHILDREN);
+    }
+
+    @Override
+    public void moveTo(Node parent) throws IllegalArgumentException, EntityAlreadyExistsException {
+        InMemoryNode target = unwrap(Parameters.requireNonNull(parent, "parent"));
+        target.checkChildrenLoaded();
+
+        moveTo((target == this.parent) ? target.children.size() - 1 : target.children.size(), target);
+    }
+
+    @Override
+    public void moveTo(int index, Node parent) throws IndexOutOfBoundsException, IllegalArgumentException,
+            EntityAlreadyExistsException {
+        InMemoryNode target = unwrap(Parameters.requireNonNull(parent, "parent"));
+        if (this.parent == null)
+            throw new IllegalArgumentException("Cannot move the root node");
+        if (target.getRoot() != getRoot())
+            throw new IllegalArgumentException("Cannot move node to a different navigation tree");
+        for (InMemoryNode node = target; node != null; node = node.parent) {
+            if (node == this)
+                throw new IllegalArgumentException("Cannot move node to itself or one of its descendants");
+        }
+        target.checkChildrenLoaded();
+
+        if (target == this.parent) {
+            moveTo(index);
+            return;
+        }
+
+        if (target.hasChild(getName()))
+            throw new EntityAlreadyExistsException("Node with name " + getName() + " already exists at " + target.getNodePath());
+        if (index < 0 || index > target.children.size())
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range");
+
+        this.parent.changed(NodeChanges.Change.CHILDREN);
+        this.parent.children.remove(this);
+        if (this.parent.childIndex != null) {
+            this.parent.childIndex.remove(getName());
+        }
+        target.children.add(index, this);
+        if (target.childIndex != null) {
+            target.childIndex.put(getName(), this);
+        }
+        this.parent = target;
+        target.changed(NodeChanges.Change.CHILDREN);
+        changed(NodeChanges.Change.MOVE);
+    }
+
+    @Override
+    public Iterator<Node> iterator() {
+        checkChildrenLoaded();
+        return Collections.<Node> unmodifiableList(children).iterator();
+    }
+
+    @Override
+    public String toString() {
+        return ObjectToStringBuilder.toStringBuilder(Node.class).add("name", getName()).add("path", getNodePath())
+                .add("pageId", getPageId()).toString();
+    }
+
+    /**
+     * Returns the loaded child with the specified name. Large numbers of children are looked up in an index by name, which
+     * is built on first use and kept up to date as children are added, removed, renamed and moved.
+     */
+    private InMemoryNode findChild(String childName) {
+        List<InMemoryNode> children = this.children;
+        Map<String, InMemoryNode> index = childIndex;
+        if (index == null) {
+            if (children.size() < INDEX_THRESHOLD) {
+                for (InMemoryNode child : children) {
+                    if (child.getName().equals(childName))
+                        return child;
+                }
+                return null;
+            }
+
+            index = new HashMap<String, InMemoryNode>(children.size() * 2);
+            for (InMemoryNode child : children) {
+                index.put(child.getName(), child);
+            }
+            childIndex = index;
+        }
+        return index.get(childName);
+    }
+
+    private void checkChildrenLoaded() {
+        if (children == null) {
+            if (!loadOnDemand)
+                throw new IllegalStateException("Children of node " + getNodePath() + " have not been loaded");
+
+            navigation.loadOnDemand(this);
+        }
+    }
+
+    static InMemoryNode unwrap(Node node) {
+        if (node instanceof InMemoryFilteredNode) {
+            return ((InMemoryFilteredNode) node).getNode();
+        } else if (node instanceof InMemoryNode) {
+            return (InMemoryNode) node;
+        } else {
+            throw new IllegalArgumentException("Node " + node + " does not belong to an in-memory navigation");
+        }
+    }
+
+    /**
+     * Display names handed out by {@link #getDisplayNames()}, which become the display names of the node and record an
+     * {@link NodeChanges.Change#UPDATE} when first modified
+     */
+    private static final class EditableDisplayNames extends LocalizedString {
+        private final transient InMemoryNode node;
+
+        private EditableDisplayNames(InMemoryNode node, LocalizedString displayNames) {
+            super(displayNames);
+            this.node = node;
+        }
+
+        @Override
+        public LocalizedString setValue(String value) {
+            modified();
+            return super.setValue(value);
+        }
+
+        @Override
+        public LocalizedString setLocalizedValue(Locale locale, String value) {
+            modified();
+            return super.setLocalizedValue(locale, value);
+        }
+
+        @Override
+        public void removeLocalizedValue(Locale locale) {
+            modified();
+            super.removeLocalizedValue(locale);
+        }
+
+        private void modified() {
+            if (node == null)
+                return;
+
+            if (node.displayNames != this) {
+                node.edit();
+                node.displayNames = this;
+            }
+            node.changed(NodeChanges.Change.UPDATE);
+        }
+    }
+}
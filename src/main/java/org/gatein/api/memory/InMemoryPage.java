@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import org.gatein.api.internal.ObjectToStringBuilder;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.security.Permission;
+import org.gatein.api.site.SiteId;
+
+/**
+ * Detached copy of a page held by the {@link InMemoryPortal}. Changes are not visible to other callers until the page is
+ * saved.
+ */
+class InMemoryPage implements Page {
+    private final PageId id;
+    private String displayName;
+    private String description;
+    private Permission accessPermission;
+    private Permission editPermission;
+    private transient boolean created;
+
+    InMemoryPage(PageId id) {
+        this.id = Parameters.requireNonNull(id, "id");
+        this.accessPermission = Permission.everyone();
+        this.editPermission = Permission.any("platform", "administrators");
+        this.created = true;
+    }
+
+    InMemoryPage(Page page) {
+        this.id = page.getId();
+        this.displayName = page.getDisplayName();
+        this.description = page.getDescription();
+        this.accessPermission = page.getAccessPermission();
+        this.editPermission = page.getEditPermission();
+    }
+
+    boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * Marks a created entity as stored, so saving it again updates it rather than creating it
+     */
+    void saved() {
+        created = false;
+    }
+
+    @Override
+    public PageId getId() {
+        return id;
+    }
+
+    @Override
+    public SiteId getSiteId() {
+        return id.getSiteId();
+    }
+
+    @Override
+    public String getName() {
+        return id.getPageName();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    @Override
+    public Permission getAccessPermission() {
+        return accessPermission;
+    }
+
+    @Override
+    public void setAccessPermission(Permission permission) {
+        this.accessPermission = Parameters.requireNonNull(permission, "permission");
+    }
+
+    @Override
+    public Permission getEditPermission() {
+        return editPermission;
+    }
+
+    @Override
+    public void setEditPermission(Permission permission) {
+        this.editPermission = Parameters.requireNonNull(permission, "permission");
+    }
+
+    @Override
+    public int compareTo(Page other) {
+        SiteId siteId = getSiteId();
+        SiteId otherSiteId = other.getSiteId();
+
+        int result = siteId.getType().compareTo(otherSiteId.getType());
+        if (result == 0)
+            result = siteId.getName().compareTo(otherSiteId.getName());
+
+        return (result != 0) ? result : getName().compareTo(other.getName());
+    }
+
+    @Override
+    public String toString() {
+        return ObjectToStringBuilder.toStringBuilder(Page.class).add("id", id).add("displayName", displayName).toString();
+    }
+}
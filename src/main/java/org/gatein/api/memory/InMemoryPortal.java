@@ -0,0 +1,1012 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gatein.api.ApiException;
+import org.gatein.api.EntityAlreadyExistsException;
+import org.gatein.api.EntityNotFoundException;
+import org.gatein.api.Portal;
+import org.gatein.api.common.Cursor;
+import org.gatein.api.common.Filter;
+import org.gatein.api.common.KeysetPagination;
+import org.gatein.api.common.Pagination;
+import org.gatein.api.common.Predicate;
+import org.gatein.api.common.Projection;
+import org.gatein.api.common.Property;
+import org.gatein.api.common.Sorting;
+import org.gatein.api.common.Summary;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.navigation.Visibility;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.page.PageQuery;
+import org.gatein.api.security.Membership;
+import org.gatein.api.security.Permission;
+import org.gatein.api.security.PermissionCache;
+import org.gatein.api.security.PermissionEvaluator;
+import org.gatein.api.security.PermissionEvaluator.MembershipSnapshot;
+import org.gatein.api.security.User;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.gatein.api.site.SiteQuery;
+import org.gatein.api.site.SiteType;
+
+/**
+ * A self-contained, thread-safe {@link Portal} which keeps all sites, pages and navigations in memory. It is intended as a
+ * reference implementation of the API and as a fast baseline for tests and benchmarks.
+ * <p>
+ * Sites and pages are kept in concurrent indexes keyed by their ids. Sites, and the pages of each site, are kept in their
+ * natural order, which cursors returned by {@link #findSites(SiteQuery, String)} and {@link #findPages(PageQuery, String)}
+ * iterate directly. Sites are also kept in indexes ordered by name and by display name, so queries sorted by type, name or
+ * display name are paginated while iterating an index rather than after sorting all matching sites. Entities returned by
+ * this portal are detached copies,
+ * so changes are not visible to other callers until they are saved. User memberships used by
+ * {@link #hasPermission(User, Permission)} are registered with {@link #addMembership(User, Membership)}. Permission
+ * decisions are cached in a {@link PermissionCache}, which is invalidated when memberships or the permissions of sites and
+ * pages change.
+ * </p>
+ */
+public class InMemoryPortal implements Portal {
+    private static final Comparator<SiteId> SITE_ORDER = new Comparator<SiteId>() {
+        @Override
+        public int compare(SiteId id1, SiteId id2) {
+            int result = id1.getType().compareTo(id2.getType());
+            return (result != 0) ? result : id1.getName().compareTo(id2.getName());
+        }
+    };
+
+    private static final Comparator<PageId> PAGE_ORDER = new Comparator<PageId>() {
+        @Override
+        public int compare(PageId id1, PageId id2) {
+            int result = SITE_ORDER.compare(id1.getSiteId(), id2.getSiteId());
+            return (result != 0) ? result : id1.getPageName().compareTo(id2.getPageName());
+        }
+    };
+
+    private static final Comparator<InMemorySite> NAME_ORDER = new Comparator<InMemorySite>() {
+        @Override
+        public int compare(InMemorySite site1, InMemorySite site2) {
+            int result = site1.getName().compareTo(site2.getName());
+            return (result != 0) ? result : site1.getType().compareTo(site2.getType());
+        }
+    };
+
+    private static final Comparator<InMemorySite> DISPLAY_NAME_ORDER = new Comparator<InMemorySite>() {
+        @Override
+        public int compare(InMemorySite site1, InMemorySite site2) {
+            int result = compareValues(site1.getDisplayName(), site2.getDisplayName());
+            return (result != 0) ? result : site1.compareTo(site2);
+        }
+    };
+
+    private final ConcurrentNavigableMap<SiteId, InMemorySite> sites = new ConcurrentSkipListMap<SiteId, InMemorySite>(
+            SITE_ORDER);
+    private final NavigableSet<InMemorySite> sitesByName = new ConcurrentSkipListSet<InMemorySite>(NAME_ORDER);
+    private final NavigableSet<InMemorySite> sitesByDisplayName = new ConcurrentSkipListSet<InMemorySite>(
+            DISPLAY_NAME_ORDER);
+    private final Object siteIndexLock = new Object();
+    private final ConcurrentMap<PageId, InMemoryPage> pages = new ConcurrentHashMap<PageId, InMemoryPage>();
+    private final ConcurrentMap<SiteId, NavigableSet<PageId>> sitePages = new ConcurrentHashMap<SiteId, NavigableSet<PageId>>();
+    private final ConcurrentMap<SiteId, NavigationData> navigations = new ConcurrentHashMap<SiteId, NavigationData>();
+    private final ConcurrentMap<String, MembershipSnapshot> memberships = new ConcurrentHashMap<String, MembershipSnapshot>();
+    private final PermissionEvaluator evaluator = new PermissionEvaluator();
+    private final PermissionCache permissionCache;
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Creates a new portal caching up to 10000 permission decisions for 5 minutes
+     */
+    public InMemoryPortal() {
+        this(new PermissionCache(10000, 5, TimeUnit.MINUTES));
+    }
+
+    /**
+     * Creates a new portal caching permission decisions in the specified cache
+     *
+     * @param permissionCache the permission decision cache
+     */
+    public InMemoryPortal(PermissionCache permissionCache) {
+        this.permissionCache = Parameters.requireNonNull(permissionCache, "permissionCache");
+    }
+
+    @Override
+    public Site getSite(SiteId siteId) throws IllegalArgumentException {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        InMemorySite site = sites.get(siteId);
+        return (site == null) ? null : new InMemorySite(site);
+    }
+
+    @Override
+    public Map<SiteId, Site> getSites(Collection<SiteId> siteIds) throws IllegalArgumentException {
+        Parameters.requireNonNull(siteIds, "siteIds");
+
+        Map<SiteId, Site> result = new LinkedHashMap<SiteId, Site>();
+        for (SiteId siteId : siteIds) {
+            Parameters.requireNonNull(siteId, "siteId");
+
+            InMemorySite site = sites.get(siteId);
+            if (site != null) {
+                result.put(siteId, new InMemorySite(site));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean siteExists(SiteId siteId) throws IllegalArgumentException {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        return sites.containsKey(siteId);
+    }
+
+    @Override
+    public Site createSite(SiteId siteId) throws IllegalArgumentException, EntityAlreadyExistsException {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        if (sites.containsKey(siteId))
+            throw new EntityAlreadyExistsException("Site " + siteId + " already exists");
+
+        return new InMemorySite(siteId);
+    }
+
+    @Override
+    public List<Site> findSites(SiteQuery query) throws IllegalArgumentException {
+        Parameters.requireNonNull(query, "query");
+
+        List<InMemorySite> found = querySites(query);
+        List<Site> result = new ArrayList<Site>(found.size());
+        for (InMemorySite site : found) {
+            result.add(new InMemorySite(site));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Summary<SiteId>> findSiteSummaries(SiteQuery query) throws IllegalArgumentException {
+        Parameters.requireNonNull(query, "query");
+
+        boolean displayName = query.getProjection() != Projection.ID;
+        List<InMemorySite> found = querySites(query);
+        List<Summary<SiteId>> result = new ArrayList<Summary<SiteId>>(found.size());
+        for (InMemorySite site : found) {
+            result.add(new Summary<SiteId>(site.getId(), displayName ? site.getDisplayName() : null));
+        }
+        return result;
+    }
+
+    @Override
+    public Cursor<Site> findSites(SiteQuery query, String continuationToken) throws IllegalArgumentException {
+        Parameters.requireNonNull(query, "query");
+
+        return siteCursor(query, (continuationToken == null) ? null : parseSiteToken(continuationToken), continuationToken);
+    }
+
+    @Override
+    public int countSites(SiteQuery query) throws IllegalArgumentException {
+        Parameters.requireNonNull(query, "query");
+
+        int count = 0;
+        for (InMemorySite site : siteCandidates(query)) {
+            if (matches(query, site)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void saveSite(Site site) throws IllegalArgumentException, ApiException {
+        Parameters.requireNonNull(site, "site");
+
+        SiteId siteId = site.getId();
+        InMemorySite copy = new InMemorySite(site);
+        InMemorySite previous;
+        synchronized (siteIndexLock) {
+            if (site instanceof InMemorySite && ((InMemorySite) site).isCreated()) {
+                if (sites.putIfAbsent(siteId, copy) != null)
+                    throw new EntityAlreadyExistsException("Site " + siteId + " already exists");
+
+                ((InMemorySite) site).saved();
+
+                previous = null;
+            } else {
+                previous = sites.put(siteId, copy);
+            }
+            if (previous != null) {
+                sitesByName.remove(previous);
+                sitesByDisplayName.remove(previous);
+            }
+            sitesByName.add(copy);
+            sitesByDisplayName.add(copy);
+        }
+        if (previous != null) {
+            invalidate(previous.getAccessPermission(), copy.getAccessPermission());
+            invalidate(previous.getEditPermission(), copy.getEditPermission());
+        }
+
+        sitePages.putIfAbsent(siteId, new ConcurrentSkipListSet<PageId>(PAGE_ORDER));
+        navigations.putIfAbsent(siteId, new NavigationData(0, new NodeData(nextId(), "default", null, new Visibility(), null,
+                null, Collections.<NodeData> emptyList())));
+    }
+
+    @Override
+    public boolean removeSite(SiteId siteId) throws IllegalArgumentException, EntityNotFoundException {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        InMemorySite site;
+        synchronized (siteIndexLock) {
+            site = sites.remove(siteId);
+            if (site == null)
+                return false;
+
+            sitesByName.remove(site);
+            sitesByDisplayName.remove(site);
+        }
+
+        invalidate(site.getAccessPermission(), null);
+        invalidate(site.getEditPermission(), null);
+        navigations.remove(siteId);
+        NavigableSet<PageId> pageIds = sitePages.remove(siteId);
+        if (pageIds != null) {
+            for (PageId pageId : pageIds) {
+                InMemoryPage page = pages.remove(pageId);
+                if (page != null) {
+                    invalidate(page.getAccessPermission(), null);
+                    invalidate(page.getEditPermission(), null);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Navigation getNavigation(SiteId siteId) throws IllegalArgumentException, EntityNotFoundException {
+        requireSite(siteId);
+
+        return navigations.containsKey(siteId) ? new InMemoryNavigation(this, siteId) : null;
+    }
+
+    @Override
+    public Page getPage(PageId pageId) throws IllegalArgumentException, EntityNotFoundException {
+        Parameters.requireNonNull(pageId, "pageId");
+
+        InMemoryPage page = pages.get(pageId);
+        if (page == null) {
+            requireSite(pageId.getSiteId());
+            return null;
+        }
+        return new InMemoryPage(page);
+    }
+
+    @Override
+    public Map<PageId, Page> getPages(Collection<PageId> pageIds) throws IllegalArgumentException, EntityNotFoundException {
+        Parameters.requireNonNull(pageIds, "pageIds");
+
+        Map<PageId, Page> result = new LinkedHashMap<PageId, Page>();
+        for (PageId pageId : pageIds) {
+            Parameters.requireNonNull(pageId, "pageId");
+
+            InMemoryPage page = pages.get(pageId);
+            if (page == null) {
+                requireSite(pageId.getSiteId());
+            } else {
+                result.put(pageId, new InMemoryPage(page));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean pageExists(PageId pageId) throws IllegalArgumentException {
+        Parameters.requireNonNull(pageId, "pageId");
+
+        return pages.containsKey(pageId);
+    }
+
+    @Override
+    public Page createPage(PageId pageId) throws IllegalArgumentException, EntityAlreadyExistsException,
+            EntityNotFoundException {
+        Parameters.requireNonNull(pageId, "pageId");
+        requireSite(pageId.getSiteId());
+
+        if (pages.containsKey(pageId))
+            throw new EntityAlreadyExistsException("Page " + pageId + " already exists");
+
+        return new InMemoryPage(pageId);
+    }
+
+    @Override
+    public List<Page> findPages(PageQuery query) throws IllegalArgumentException {
+        Parameters.requireNonNull(query, "query");
+
+        List<InMemoryPage> found = queryPages(query);
+        List<Page> result = new ArrayList<Page>(found.size());
+        for (InMemoryPage page : found) {
+            result.add(new InMemoryPage(page));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Summary<PageId>> findPageSummaries(PageQuery query) throws IllegalArgumentException {
+        Parameters.requireNonNull(query, "query");
+
+        boolean displayName = query.getProjection() != Projection.ID;
+        List<InMemoryPage> found = queryPages(query);
+        List<Summary<PageId>> result = new ArrayList<Summary<PageId>>(found.size());
+        for (InMemoryPage page : found) {
+            result.add(new Summary<PageId>(page.getId(), displayName ? page.getDisplayName() : null));
+        }
+        return result;
+    }
+
+    @Override
+    public Cursor<Page> findPages(PageQuery query, String continuationToken) throws IllegalArgumentException {
+        Parameters.requireNonNull(query, "query");
+
+        return pageCursor(query, (continuationToken == null) ? null : parsePageToken(continuationToken), continuationToken);
+    }
+
+    @Override
+    public int countPages(PageQuery query) throws IllegalArgumentException {
+        Parameters.requireNonNull(query, "query");
+
+        int count = 0;
+        for (PageId pageId : pageCandidates(query)) {
+            InMemoryPage page = pages.get(pageId);
+            if (page != null && matches(query, page)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void savePage(Page page) throws IllegalArgumentException, ApiException {
+        Parameters.requireNonNull(page, "page");
+
+        PageId pageId = page.getId();
+        Set<PageId> pageIds = sitePages.get(pageId.getSiteId());
+        if (pageIds == null)
+            throw new EntityNotFoundException("Site " + pageId.getSiteId() + " not found");
+
+        InMemoryPage copy = new InMemoryPage(page);
+        if (page instanceof InMemoryPage && ((InMemoryPage) page).isCreated()) {
+            if (pages.putIfAbsent(pageId, copy) != null)
+                throw new EntityAlreadyExistsException("Page " + pageId + " already exists");
+
+            ((InMemoryPage) page).saved();
+        } else {
+            InMemoryPage previous = pages.put(pageId, copy);
+            if (previous != null) {
+                invalidate(previous.getAccessPermission(), copy.getAccessPermission());
+                invalidate(previous.getEditPermission(), copy.getEditPermission());
+            }
+        }
+        pageIds.add(pageId);
+    }
+
+    @Override
+    public boolean removePage(PageId pageId) throws EntityNotFoundException {
+        Parameters.requireNonNull(pageId, "pageId");
+        requireSite(pageId.getSiteId());
+
+        InMemoryPage page = pages.remove(pageId);
+        if (page == null)
+            return false;
+
+        invalidate(page.getAccessPermission(), null);
+        invalidate(page.getEditPermission(), null);
+
+        Set<PageId> pageIds = sitePages.get(pageId.getSiteId());
+        if (pageIds != null)
+            pageIds.remove(pageId);
+
+        return true;
+    }
+
+    @Override
+    public boolean hasPermission(User user, Permission permission) {
+        Parameters.requireNonNull(user, "user");
+        Parameters.requireNonNull(permission, "permission");
+
+        if (permission.isAccessibleToEveryone())
+            return true;
+        if (user.isAnonymous())
+            return false;
+
+        long generation = permissionCache.getGeneration();
+        Boolean cached = permissionCache.get(user, permission);
+        if (cached != null)
+            return cached;
+
+        MembershipSnapshot snapshot = memberships.get(user.getId());
+        if (snapshot == null) {
+            snapshot = evaluator.snapshot(user, Collections.<Membership> emptyList());
+        }
+        boolean decision = snapshot.hasPermission(permission);
+        permissionCache.put(user, permission, decision, generation);
+        return decision;
+    }
+
+    /**
+     * Registers a membership of the specified user, which is used to evaluate permissions.
+     *
+     * @param user the user
+     * @param membership the membership in a group
+     * @throws IllegalArgumentException if user or membership is null, user is anonymous or the membership has no group
+     */
+    public void addMembership(User user, Membership membership) throws IllegalArgumentException {
+        String userId = requireUserId(user);
+        Parameters.requireNonNull(membership, "membership");
+        Parameters.requireNonNull(membership.getGroup(), "membership.group");
+
+        MembershipSnapshot current;
+        do {
+            current = memberships.get(userId);
+            if (current == null) {
+                current = memberships.putIfAbsent(userId, evaluator.snapshot(user, Collections.singleton(membership)));
+                if (current == null)
+                    break;
+            }
+        } while (!memberships.replace(userId, current, current.with(membership)));
+
+        permissionCache.invalidate(user);
+    }
+
+    /**
+     * Removes all memberships registered for the specified user.
+     *
+     * @param user the user
+     * @throws IllegalArgumentException if user is null or anonymous
+     */
+    public void removeMemberships(User user) throws IllegalArgumentException {
+        memberships.remove(requireUserId(user));
+        permissionCache.invalidate(user);
+    }
+
+    NavigationData getNavigationData(SiteId siteId) {
+        return navigations.get(siteId);
+    }
+
+    boolean replaceNavigationData(SiteId siteId, NavigationData current, NavigationData updated) {
+        return navigations.replace(siteId, current, updated);
+    }
+
+    /**
+     * The access permission of the stored page, or null if the page does not exist. Unlike {@link #getPage(PageId)} the page
+     * is not copied, and a missing site is not an error.
+     */
+    Permission getAccessPermission(PageId pageId) {
+        InMemoryPage page = pages.get(pageId);
+        return (page == null) ? null : page.getAccessPermission();
+    }
+
+    /**
+     * The edit permission of the stored page, or null if the page does not exist
+     */
+    Permission getEditPermission(PageId pageId) {
+        InMemoryPage page = pages.get(pageId);
+        return (page == null) ? null : page.getEditPermission();
+    }
+
+    /**
+     * The edit permission of the stored site, or null if the site does not exist
+     */
+    Permission getEditPermission(SiteId siteId) {
+        InMemorySite site = sites.get(siteId);
+        return (site == null) ? null : site.getEditPermission();
+    }
+
+    String nextId() {
+        return Long.toString(ids.incrementAndGet());
+    }
+
+    private void invalidate(Permission previous, Permission current) {
+        if (previous != null && previous != current) {
+            permissionCache.invalidate(previous);
+        }
+    }
+
+    /**
+     * Returns the stored sites matching the query, sorted and paginated
+     */
+    private List<InMemorySite> querySites(SiteQuery query) {
+        KeysetPagination<SiteId> keysetPagination = query.getKeysetPagination();
+        if (keysetPagination != null)
+            return take(siteCursor(query, keysetPagination.getAfter(), null), keysetPagination.getLimit());
+
+        List<Iterable<InMemorySite>> indexes = sortedIndexes(query);
+        if (indexes != null)
+            return paginate(indexes, query);
+
+        List<InMemorySite> result = new ArrayList<InMemorySite>();
+        for (InMemorySite site : siteCandidates(query)) {
+            if (matches(query, site)) {
+                result.add(site);
+            }
+        }
+
+        sort(result, query.getSorting());
+        return paginate(result, query.getPagination());
+    }
+
+    /**
+     * Returns the stored pages matching the query, sorted and paginated
+     */
+    private List<InMemoryPage> queryPages(PageQuery query) {
+        KeysetPagination<PageId> keysetPagination = query.getKeysetPagination();
+        if (keysetPagination != null)
+            return take(pageCursor(query, keysetPagination.getAfter(), null), keysetPagination.getLimit());
+
+        List<InMemoryPage> result = new ArrayList<InMemoryPage>();
+        for (PageId pageId : pageCandidates(query)) {
+            InMemoryPage page = pages.get(pageId);
+            if (page != null && matches(query, page)) {
+                result.add(page);
+            }
+        }
+
+        Collections.sort(result);
+        return paginate(result, query.getPagination());
+    }
+
+    /**
+     * Returns the indexes to iterate, in order, for the sorting of the query, or null if the sites must be sorted after
+     * they are found
+     */
+    private List<Iterable<InMemorySite>> sortedIndexes(SiteQuery query) {
+        if (findPredicate(query.getPredicates(), SiteQuery.NAME) != null)
+            return null;
+
+        Sorting<Site> sorting = query.getSorting();
+        if (sorting != null && sorting.getComparator() != null)
+            return null;
+
+        Property<Site> property = (sorting == null) ? null : sorting.getProperty();
+        boolean descending = sorting != null && sorting.getOrder() == Sorting.Order.descending;
+
+        List<Iterable<InMemorySite>> indexes = new ArrayList<Iterable<InMemorySite>>();
+        if (property == null || property.equals(SiteQuery.TYPE)) {
+            for (SiteType type : SiteType.values()) {
+                if (query.getSiteTypes().contains(type)) {
+                    indexes.add(sitesOfType(type, descending));
+                }
+            }
+            if (descending) {
+                Collections.reverse(indexes);
+            }
+        } else if (property.equals(SiteQuery.NAME)) {
+            indexes.add(descending ? sitesByName.descendingSet() : sitesByName);
+        } else if (property.equals(SiteQuery.DISPLAY_NAME)) {
+            indexes.add(descending ? sitesByDisplayName.descendingSet() : sitesByDisplayName);
+        } else {
+            return null;
+        }
+        return indexes;
+    }
+
+    private Iterable<InMemorySite> sitesOfType(SiteType type, boolean descending) {
+        SiteId from = new SiteId(type, "");
+        SiteType[] types = SiteType.values();
+        ConcurrentNavigableMap<SiteId, InMemorySite> range;
+        if (type.ordinal() + 1 < types.length) {
+            range = sites.subMap(from, true, new SiteId(types[type.ordinal() + 1], ""), false);
+        } else {
+            range = sites.tailMap(from, true);
+        }
+        return descending ? range.descendingMap().values() : range.values();
+    }
+
+    /**
+     * Paginates the sites matching the query while iterating the sorted indexes, stopping once the page is full
+     */
+    private List<InMemorySite> paginate(List<Iterable<InMemorySite>> indexes, SiteQuery query) {
+        Pagination pagination = query.getPagination();
+        int skip = (pagination == null) ? 0 : Math.max(pagination.getOffset(), 0);
+        int limit = (pagination == null) ? -1 : pagination.getLimit();
+
+        List<InMemorySite> result = new ArrayList<InMemorySite>();
+        for (Iterable<InMemorySite> index : indexes) {
+            for (InMemorySite site : index) {
+                if (limit >= 0 && result.size() >= limit)
+                    return result;
+
+                if (matches(query, site)) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        result.add(site);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private InMemoryCursor<InMemorySite, Site> siteCursor(final SiteQuery query, SiteId after, String continuationToken) {
+        Sorting<Site> sorting = query.getSorting();
+        if (sorting != null && sorting.getComparator() != null)
+            throw new IllegalArgumentException("Cursors do not support sorting with a comparator");
+        if (sorting != null && sorting.getProperty() != null && !sorting.getProperty().equals(SiteQuery.TYPE))
+            throw new IllegalArgumentException("Cursors do not support sorting by " + sorting.getProperty().getName());
+
+        ConcurrentNavigableMap<SiteId, InMemorySite> ordered = sites;
+        if (sorting != null && sorting.getOrder() == Sorting.Order.descending) {
+            ordered = ordered.descendingMap();
+        }
+        if (after != null) {
+            ordered = ordered.tailMap(after, false);
+        }
+
+        final Iterator<InMemorySite> iterator = ordered.values().iterator();
+        return new InMemoryCursor<InMemorySite, Site>(continuationToken) {
+            @Override
+            InMemorySite computeNext() {
+                while (iterator.hasNext()) {
+                    InMemorySite site = iterator.next();
+                    if (matches(query, site))
+                        return site;
+                }
+                return null;
+            }
+
+            @Override
+            String tokenOf(InMemorySite site) {
+                return siteToken(site.getId());
+            }
+
+            @Override
+            Site detach(InMemorySite site) {
+                return new InMemorySite(site);
+            }
+        };
+    }
+
+    private InMemoryCursor<InMemoryPage, Page> pageCursor(final PageQuery query, final PageId after, String continuationToken) {
+        final Iterator<SiteId> siteIds;
+        if (query.getSiteType() != null && query.getSiteName() != null) {
+            siteIds = Collections.singleton(new SiteId(query.getSiteType(), query.getSiteName())).iterator();
+        } else if (after != null) {
+            siteIds = sites.tailMap(after.getSiteId(), true).keySet().iterator();
+        } else {
+            siteIds = sites.keySet().iterator();
+        }
+
+        return new InMemoryCursor<InMemoryPage, Page>(continuationToken) {
+            private Iterator<PageId> pageIds = Collections.<PageId> emptySet().iterator();
+
+            @Override
+            InMemoryPage computeNext() {
+                while (true) {
+                    while (pageIds.hasNext()) {
+                        InMemoryPage page = pages.get(pageIds.next());
+                        if (page != null && matches(query, page))
+                            return page;
+                    }
+
+                    if (!siteIds.hasNext())
+                        return null;
+
+                    SiteId siteId = siteIds.next();
+                    NavigableSet<PageId> sitePageIds = sitePages.get(siteId);
+                    if (sitePageIds == null || (query.getSiteType() != null && query.getSiteType() != siteId.getType()))
+                        continue;
+
+                    int position = (after == null) ? 1 : SITE_ORDER.compare(siteId, after.getSiteId());
+                    if (position == 0) {
+                        pageIds = sitePageIds.tailSet(after, false).iterator();
+                    } else if (position > 0) {
+                        pageIds = sitePageIds.iterator();
+                    }
+                }
+            }
+
+            @Override
+            String tokenOf(InMemoryPage page) {
+                return pageToken(page.getId());
+            }
+
+            @Override
+            Page detach(InMemoryPage page) {
+                return new InMemoryPage(page);
+            }
+        };
+    }
+
+    /**
+     * Uses a name predicate of the query to look up sites in the index rather than scanning all sites
+     */
+    private Iterable<InMemorySite> siteCandidates(SiteQuery query) {
+        Predicate<Site> name = findPredicate(query.getPredicates(), SiteQuery.NAME);
+        if (name == null)
+            return sites.values();
+
+        List<InMemorySite> candidates = new ArrayList<InMemorySite>();
+        for (SiteType type : query.getSiteTypes()) {
+            if (name.getOperator() == Predicate.Operator.PREFIX) {
+                String prefix = (String) name.getValues().iterator().next();
+                for (Map.Entry<SiteId, InMemorySite> entry : sites.tailMap(new SiteId(type, prefix)).entrySet()) {
+                    if (entry.getKey().getType() != type || !entry.getKey().getName().startsWith(prefix))
+                        break;
+
+                    candidates.add(entry.getValue());
+                }
+            } else {
+                for (Object value : name.getValues()) {
+                    InMemorySite site = (value instanceof String) ? sites.get(new SiteId(type, (String) value)) : null;
+                    if (site != null) {
+                        candidates.add(site);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Uses the site and page name predicates of the query to look up pages in the index rather than scanning all pages
+     */
+    private Iterable<PageId> pageCandidates(PageQuery query) {
+        Iterable<SiteId> siteIds;
+        if (query.getSiteType() != null && query.getSiteName() != null) {
+            siteIds = Collections.singleton(new SiteId(query.getSiteType(), query.getSiteName()));
+        } else {
+            siteIds = sites.keySet();
+        }
+
+        Predicate<Page> siteType = findPredicate(query.getPredicates(), PageQuery.SITE_TYPE);
+        Predicate<Page> siteName = findPredicate(query.getPredicates(), PageQuery.SITE_NAME);
+        Predicate<Page> name = findPredicate(query.getPredicates(), PageQuery.NAME);
+        List<PageId> candidates = new ArrayList<PageId>();
+        for (SiteId siteId : siteIds) {
+            if (query.getSiteType() != null && query.getSiteType() != siteId.getType())
+                continue;
+            if (query.getSiteName() != null && !query.getSiteName().equals(siteId.getName()))
+                continue;
+            if ((siteType != null && !siteType.matches(siteId.getType()))
+                    || (siteName != null && !siteName.matches(siteId.getName())))
+                continue;
+
+            NavigableSet<PageId> pageIds = sitePages.get(siteId);
+            if (pageIds == null)
+                continue;
+
+            if (name == null) {
+                candidates.addAll(pageIds);
+            } else if (name.getOperator() == Predicate.Operator.PREFIX) {
+                String prefix = (String) name.getValues().iterator().next();
+                for (PageId pageId : pageIds.tailSet(siteId.page(prefix))) {
+                    if (!pageId.getPageName().startsWith(prefix))
+                        break;
+
+                    candidates.add(pageId);
+                }
+            } else {
+                for (Object value : name.getValues()) {
+                    if (value instanceof String && pageIds.contains(siteId.page((String) value))) {
+                        candidates.add(siteId.page((String) value));
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static <T> Predicate<T> findPredicate(List<Predicate<T>> predicates, Property<T> property) {
+        for (Predicate<T> predicate : predicates) {
+            if (predicate.getProperty().equals(property))
+                return predicate;
+        }
+        return null;
+    }
+
+    private static <T> boolean matches(List<Predicate<T>> predicates, T element) {
+        for (Predicate<T> predicate : predicates) {
+            if (!predicate.accept(element))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean matches(SiteQuery query, InMemorySite site) {
+        if (!query.getSiteTypes().contains(site.getType()))
+            return false;
+        if (!matches(query.getPredicates(), site))
+            return false;
+        if (!query.isIncludeEmptySites() && isEmpty(site.getId()))
+            return false;
+
+        // The filter is caller code, so it gets a copy it cannot use to modify the stored site
+        Filter<Site> filter = query.getFilter();
+        return filter == null || filter.accept(new InMemorySite(site));
+    }
+
+    private static boolean matches(PageQuery query, InMemoryPage page) {
+        SiteId siteId = page.getSiteId();
+        if (query.getSiteType() != null && query.getSiteType() != siteId.getType())
+            return false;
+        if (query.getSiteName() != null && !query.getSiteName().equals(siteId.getName()))
+            return false;
+        if (query.getDisplayName() != null && !query.getDisplayName().equals(page.getDisplayName()))
+            return false;
+        if (!matches(query.getPredicates(), page))
+            return false;
+
+        Filter<Page> filter = query.getFilter();
+        return filter == null || filter.accept(new InMemoryPage(page));
+    }
+
+    /**
+     * Site tokens are the site type and name separated by ':'
+     */
+    private static String siteToken(SiteId siteId) {
+        return siteId.getType().getName() + ':' + siteId.getName();
+    }
+
+    private static SiteId parseSiteToken(String token) {
+        int index = token.indexOf(':');
+        SiteType type = (index < 0) ? null : SiteType.forName(token.substring(0, index));
+        if (type == null)
+            throw new IllegalArgumentException("Invalid continuation token " + token);
+
+        return new SiteId(type, token.substring(index + 1));
+    }
+
+    /**
+     * Page tokens are the site type, the length of the site name, the site name and the page name, where the first two
+     * are followed by ':'
+     */
+    private static String pageToken(PageId pageId) {
+        SiteId siteId = pageId.getSiteId();
+        return siteId.getType().getName() + ':' + siteId.getName().length() + ':' + siteId.getName() + pageId.getPageName();
+    }
+
+    private static PageId parsePageToken(String token) {
+        int index = token.indexOf(':');
+        int separator = (index < 0) ? -1 : token.indexOf(':', index + 1);
+        SiteType type = (index < 0) ? null : SiteType.forName(token.substring(0, index));
+        if (type != null && separator > index + 1) {
+            int nameEnd;
+            try {
+                nameEnd = separator + 1 + Integer.parseInt(token.substring(index + 1, separator));
+            } catch (NumberFormatException e) {
+                nameEnd = -1;
+            }
+
+            if (nameEnd > separator && nameEnd <= token.length())
+                return new PageId(new SiteId(type, token.substring(separator + 1, nameEnd)), token.substring(nameEnd));
+        }
+        throw new IllegalArgumentException("Invalid continuation token " + token);
+    }
+
+    private boolean isEmpty(SiteId siteId) {
+        NavigationData data = navigations.get(siteId);
+        return data == null || data.root.children.isEmpty();
+    }
+
+    private void requireSite(SiteId siteId) {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        if (!sites.containsKey(siteId))
+            throw new EntityNotFoundException("Site " + siteId + " not found");
+    }
+
+    private static String requireUserId(User user) {
+        Parameters.requireNonNull(user, "user");
+        if (user.isAnonymous())
+            throw new IllegalArgumentException("user cannot be anonymous");
+
+        return user.getId();
+    }
+
+    /**
+     * Sorts the sites. A comparator or property supplied by the caller compares copies of the sites, which then replace the
+     * stored sites in the list, so it cannot modify the stored sites or the sorted indexes.
+     */
+    private static void sort(List<InMemorySite> sites, Sorting<Site> sorting) {
+        if (sorting != null && sorting.getComparator() != null) {
+            detach(sites);
+            Collections.sort(sites, sorting.getComparator());
+            return;
+        }
+
+        Comparator<Site> order = null;
+        if (sorting != null && sorting.getProperty() != null && !sorting.getProperty().equals(SiteQuery.TYPE)) {
+            detach(sites);
+            order = propertyOrder(sorting.getProperty());
+        }
+        if (sorting != null && sorting.getOrder() == Sorting.Order.descending) {
+            order = Collections.reverseOrder(order);
+        }
+        Collections.sort(sites, order);
+    }
+
+    private static void detach(List<InMemorySite> sites) {
+        for (ListIterator<InMemorySite> iterator = sites.listIterator(); iterator.hasNext();) {
+            iterator.set(new InMemorySite(iterator.next()));
+        }
+    }
+
+    /**
+     * Orders sites by the value of a property, with null values first and sites with equal values in their natural order
+     */
+    private static Comparator<Site> propertyOrder(final Property<Site> property) {
+        return new Comparator<Site>() {
+            @Override
+            public int compare(Site site1, Site site2) {
+                int result = compareValues(property.getValue(site1), property.getValue(site2));
+                return (result != 0) ? result : site1.compareTo(site2);
+            }
+        };
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareValues(Object value1, Object value2) {
+        if (value1 == null || value2 == null)
+            return (value1 == null) ? ((value2 == null) ? 0 : -1) : 1;
+        if (!(value1 instanceof Comparable))
+            throw new IllegalArgumentException("Cannot sort by values of " + value1.getClass().getName());
+
+        return ((Comparable) value1).compareTo(value2);
+    }
+
+    private static <S> List<S> take(InMemoryCursor<S, ?> cursor, int limit) {
+        List<S> result = new ArrayList<S>();
+        while ((limit < 0 || result.size() < limit) && cursor.hasNext()) {
+            result.add(cursor.nextStored());
+        }
+        cursor.close();
+        return result;
+    }
+
+    private static <T> List<T> paginate(List<T> list, Pagination pagination) {
+        if (pagination == null)
+            return list;
+
+        int from = Math.min(Math.max(pagination.getOffset(), 0), list.size());
+        int to = (pagination.getLimit() < 0) ? list.size() : (int) Math.min((long) from + pagination.getLimit(), list.size());
+        return new ArrayList<T>(list.subList(from, to));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.Locale;
+
+import org.gatein.api.common.Attributes;
+import org.gatein.api.internal.ObjectToStringBuilder;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.security.Permission;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.gatein.api.site.SiteType;
+
+/**
+ * Detached copy of a site held by the {@link InMemoryPortal}. Changes are not visible to other callers until the site is
+ * saved.
+ */
+class InMemorySite implements Site {
+    private final SiteId id;
+    private String displayName;
+    private String description;
+    private Locale locale;
+    private String skin;
+    private Attributes attributes;
+    private Permission accessPermission;
+    private Permission editPermission;
+    private transient boolean created;
+
+    InMemorySite(SiteId id) {
+        this.id = Parameters.requireNonNull(id, "id");
+        this.attributes = new Attributes();
+        this.accessPermission = Permission.everyone();
+        this.editPermission = Permission.any("platform", "administrators");
+        this.created = true;
+    }
+
+    InMemorySite(Site site) {
+        this.id = site.getId();
+        this.displayName = site.getDisplayName();
+        this.description = site.getDescription();
+        this.locale = site.getLocale();
+        this.skin = site.getSkin();
+        this.attributes = new Attributes(site.getAttributes());
+        this.accessPermission = site.getAccessPermission();
+        this.editPermission = site.getEditPermission();
+    }
+
+    boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * Marks a created entity as stored, so saving it again updates it rather than creating it
+     */
+    void saved() {
+        created = false;
+    }
+
+    @Override
+    public SiteId getId() {
+        return id;
+    }
+
+    @Override
+    public SiteType getType() {
+        return id.getType();
+    }
+
+    @Override
+    public String getName() {
+        return id.getName();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    @Override
+    public String getSkin() {
+        return skin;
+    }
+
+    @Override
+    public void setSkin(String skin) {
+        this.skin = skin;
+    }
+
+    @Override
+    public Attributes getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Permission getAccessPermission() {
+        return accessPermission;
+    }
+
+    @Override
+    public void setAccessPermission(Permission permission) {
+        this.accessPermission = Parameters.requireNonNull(permission, "permission");
+    }
+
+    @Override
+    public Permission getEditPermission() {
+        return editPermission;
+    }
+
+    @Override
+    public void setEditPermission(Permission permission) {
+        this.editPermission = Parameters.requireNonNull(permission, "permission");
+    }
+
+    @Override
+    public int compareTo(Site other) {
+        int result = getType().compareTo(other.getType());
+        return (result != 0) ? result : getName().compareTo(other.getName());
+    }
+
+    @Override
+    public String toString() {
+        return ObjectToStringBuilder.toStringBuilder(Site.class).add("id", id).add("displayName", displayName).toString();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable stored state of a site navigation. Writers build a new instance and swap it in atomically, so readers never
+ * observe a partially updated tree. The index of nodes by id is only built when first needed, since most writes find the
+ * nodes they replace by walking down from the root.
+ */
+final class NavigationData {
+    final int priority;
+    final NodeData root;
+    private volatile Map<String, NodeData> index;
+    private volatile Map<String, NodeData> parents;
+
+    NavigationData(int priority, NodeData root) {
+        this.priority = priority;
+        this.root = root;
+    }
+
+    private NavigationData(int priority, NodeData root, Map<String, NodeData> index) {
+        this.priority = priority;
+        this.root = root;
+        this.index = index;
+    }
+
+    NodeData get(String id) {
+        if (id == null)
+            return null;
+
+        Map<String, NodeData> index = this.index;
+        if (index == null) {
+            index = new HashMap<String, NodeData>();
+            index(root, index);
+            this.index = index;
+        }
+        return index.get(id);
+    }
+
+    /**
+     * The parent of the node with the id, or null if the node is the root or is not found. The index of parents is built
+     * separately from the index of nodes, as it is only needed to reconcile moves.
+     */
+    NodeData getParent(String id) {
+        if (id == null)
+            return null;
+
+        Map<String, NodeData> parents = this.parents;
+        if (parents == null) {
+            parents = new HashMap<String, NodeData>();
+            indexParents(root, parents);
+            this.parents = parents;
+        }
+        return parents.get(id);
+    }
+
+    NavigationData withPriority(int priority) {
+        return new NavigationData(priority, root, index);
+    }
+
+    private static void indexParents(NodeData data, Map<String, NodeData> parents) {
+        for (NodeData child : data.children) {
+            parents.put(child.id, data);
+            indexParents(child, parents);
+        }
+    }
+
+    private static void index(NodeData data, Map<String, NodeData> index) {
+        index.put(data.id, data);
+        for (NodeData child : data.children) {
+            index(child, index);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes made to a tree of {@link InMemoryNode}s since it was loaded or last saved. The log is compact: it keeps the
+ * kinds of changes made to each node rather than every operation, so editing the same node repeatedly does not grow it.
+ */
+final class NodeChanges {
+    enum Change {
+        /**
+         * The node was added
+         */
+        ADD,
+
+        /**
+         * The node was moved to another parent
+         */
+        MOVE,
+
+        /**
+         * Children of the node were added, removed, reordered, or moved to or from another parent
+         */
+        CHILDREN,
+
+        RENAME, PAGE, VISIBILITY, UPDATE
+    }
+
+    private final Map<InMemoryNode, Set<Change>> changes = new IdentityHashMap<InMemoryNode, Set<Change>>();
+
+    void record(InMemoryNode node, Change change) {
+        Set<Change> kinds = changes.get(node);
+        if (kinds == null) {
+            changes.put(node, EnumSet.of(change));
+        } else {
+            kinds.add(change);
+        }
+    }
+
+    /**
+     * The kinds of changes made to the node
+     */
+    Set<Change> get(InMemoryNode node) {
+        Set<Change> kinds = changes.get(node);
+        return (kinds == null) ? Collections.<Change> emptySet() : Collections.unmodifiableSet(kinds);
+    }
+
+    /**
+     * The nodes with the kind of change
+     */
+    List<InMemoryNode> getNodes(Change change) {
+        List<InMemoryNode> nodes = new ArrayList<InMemoryNode>();
+        for (Map.Entry<InMemoryNode, Set<Change>> entry : changes.entrySet()) {
+            if (entry.getValue().contains(change)) {
+                nodes.add(entry.getKey());
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * The changed nodes and their ancestors, which are the nodes whose stored state has to be written
+     */
+    Set<InMemoryNode> getPaths() {
+        Set<InMemoryNode> paths = Collections.newSetFromMap(new IdentityHashMap<InMemoryNode, Boolean>());
+        for (InMemoryNode node : changes.keySet()) {
+            InMemoryNode path = node;
+            while (path != null && paths.add(path)) {
+                path = path.getParentNode();
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Forgets the changes made to the node, when they were discarded
+     */
+    void forget(InMemoryNode node) {
+        changes.remove(node);
+    }
+
+    /**
+     * Forgets a kind of change made to the node, when it was discarded
+     */
+    void forget(InMemoryNode node, Change change) {
+        Set<Change> kinds = changes.get(node);
+        if (kinds != null && kinds.remove(change) && kinds.isEmpty()) {
+            changes.remove(node);
+        }
+    }
+
+    boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    void clear() {
+        changes.clear();
+    }
+}
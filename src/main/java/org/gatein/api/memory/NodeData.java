@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gatein.api.common.i18n.LocalizedString;
+import org.gatein.api.navigation.Visibility;
+import org.gatein.api.page.PageId;
+
+/**
+ * Immutable stored state of a navigation node. Trees of these are shared between threads and replaced as a whole whenever
+ * a navigation changes.
+ */
+final class NodeData {
+    final String id;
+    final String name;
+    final LocalizedString displayNames;
+    final Visibility visibility;
+    final String iconName;
+    final PageId pageId;
+    final List<NodeData> children;
+    private volatile Map<String, NodeData> childIndex;
+
+    NodeData(String id, String name, LocalizedString displayNames, Visibility visibility, String iconName, PageId pageId,
+            List<NodeData> children) {
+        this.id = id;
+        this.name = name;
+        this.displayNames = (displayNames == null) ? null : new LocalizedString(displayNames);
+        this.visibility = visibility;
+        this.iconName = iconName;
+        this.pageId = pageId;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    NodeData getChild(String childName) {
+        Map<String, NodeData> index = childIndex;
+        if (index == null) {
+            if (children.size() < InMemoryNode.INDEX_THRESHOLD) {
+                for (NodeData child : children) {
+                    if (child.name.equals(childName))
+                        return child;
+                }
+                return null;
+            }
+
+            index = new HashMap<String, NodeData>(children.size() * 2);
+            for (NodeData child : children) {
+                index.put(child.name, child);
+            }
+            childIndex = index;
+        }
+        return index.get(childName);
+    }
+}
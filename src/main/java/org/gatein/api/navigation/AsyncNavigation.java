@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.navigation;
+
+import org.gatein.api.common.AsyncResult;
+import org.gatein.api.site.SiteId;
+
+/**
+ * The asynchronous counterpart of {@link Navigation}. Each method starts the corresponding operation of
+ * <code>Navigation</code> and returns immediately with an {@link AsyncResult}. Exceptions thrown by an operation are
+ * reported through the result rather than thrown by the method.
+ */
+public interface AsyncNavigation {
+    /**
+     * The <code>SiteId</code> of the navigation
+     *
+     * @return the site id
+     */
+    SiteId getSiteId();
+
+    /**
+     * Asynchronous version of {@link Navigation#getPriority()}
+     *
+     * @return the result, which is the priority of the navigation
+     */
+    AsyncResult<Integer> getPriority();
+
+    /**
+     * Asynchronous version of {@link Navigation#setPriority(int)}
+     *
+     * @param priority the priority to save
+     * @return the result, which is null once the priority is saved
+     */
+    AsyncResult<Void> setPriority(int priority);
+
+    /**
+     * Asynchronous version of {@link Navigation#getNode(NodePath)}
+     *
+     * @param nodePath the path to the node
+     * @return the result, which is the node or null if the node was not found
+     */
+    AsyncResult<Node> getNode(NodePath nodePath);
+
+    /**
+     * Asynchronous version of {@link Navigation#getNode(NodePath, NodeVisitor)}
+     *
+     * @param nodePath the path to the node
+     * @param visitor the visitor used to determine further loading of nodes
+     * @return the result, which is the node or null if the node was not found
+     */
+    AsyncResult<Node> getNode(NodePath nodePath, NodeVisitor visitor);
+
+    /**
+     * Asynchronous version of {@link Navigation#getRootNode(NodeVisitor)}
+     *
+     * @param visitor the visitor to determine how many nodes to load
+     * @return the result, which is the root node of the navigation
+     */
+    AsyncResult<Node> getRootNode(NodeVisitor visitor);
+
+    /**
+     * Asynchronous version of {@link Navigation#refreshNode(Node)}
+     *
+     * @param node the node to refresh
+     * @return the result, which is null once the node is refreshed
+     */
+    AsyncResult<Void> refreshNode(Node node);
+
+    /**
+     * Asynchronous version of {@link Navigation#refreshNode(Node, NodeVisitor)}
+     *
+     * @param node the node to refresh
+     * @param visitor the visitor which can load more nodes
+     * @return the result, which is null once the node is refreshed
+     */
+    AsyncResult<Void> refreshNode(Node node, NodeVisitor visitor);
+
+    /**
+     * Asynchronous version of {@link Navigation#removeNode(NodePath)}
+     *
+     * @param nodePath the path to the node
+     * @return the result, which is true if the node was removed
+     */
+    AsyncResult<Boolean> removeNode(NodePath nodePath);
+
+    /**
+     * Asynchronous version of {@link Navigation#saveNode(Node)}
+     *
+     * @param node the node to save
+     * @return the result, which is null once the node is saved
+     */
+    AsyncResult<Void> saveNode(Node node);
+}
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.navigation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import org.gatein.api.common.AsyncResult;
+import org.gatein.api.internal.AsyncTask;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.site.SiteId;
+
+/**
+ * An {@link AsyncNavigation} which runs the operations of a blocking {@link Navigation} on an {@link Executor}.
+ */
+public class ExecutorAsyncNavigation implements AsyncNavigation {
+    private final Navigation navigation;
+    private final Executor executor;
+
+    /**
+     * Creates an asynchronous navigation running the operations of the specified navigation on the specified executor
+     *
+     * @param navigation the blocking navigation
+     * @param executor the executor running the operations
+     * @throws IllegalArgumentException if navigation or executor is null
+     */
+    public ExecutorAsyncNavigation(Navigation navigation, Executor executor) {
+        this.navigation = Parameters.requireNonNull(navigation, "navigation");
+        this.executor = Parameters.requireNonNull(executor, "executor");
+    }
+
+    @Override
+    public SiteId getSiteId() {
+        return navigation.getSiteId();
+    }
+
+    @Override
+    public AsyncResult<Integer> getPriority() {
+        return AsyncTask.submit(executor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return navigation.getPriority();
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Void> setPriority(final int priority) {
+        return AsyncTask.submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() {
+                navigation.setPriority(priority);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Node> getNode(final NodePath nodePath) {
+        return AsyncTask.submit(executor, new Callable<Node>() {
+            @Override
+            public Node call() {
+                return navigation.getNode(nodePath);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Node> getNode(final NodePath nodePath, final NodeVisitor visitor) {
+        return AsyncTask.submit(executor, new Callable<Node>() {
+            @Override
+            public Node call() {
+                return navigation.getNode(nodePath, visitor);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Node> getRootNode(final NodeVisitor visitor) {
+        return AsyncTask.submit(executor, new Callable<Node>() {
+            @Override
+            public Node call() {
+                return navigation.getRootNode(visitor);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Void> refreshNode(final Node node) {
+        return AsyncTask.submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() {
+                navigation.refreshNode(node);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Void> refreshNode(final Node node, final NodeVisitor visitor) {
+        return AsyncTask.submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() {
+                navigation.refreshNode(node, visitor);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Boolean> removeNode(final NodePath nodePath) {
+        return AsyncTask.submit(executor, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return navigation.removeNode(nodePath);
+            }
+        });
+    }
+
+    @Override
+    public AsyncResult<Void> saveNode(final Node node) {
+        return AsyncTask.submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() {
+                navigation.saveNode(node);
+                return null;
+            }
+        });
+    }
+}
@@ -211,7 +211,9 @@ public interface Node extends LocalizedDisplayable, Iterable<Node>, Serializable
     boolean hasChild(String childName) throws IllegalArgumentException, IllegalStateException;
 
     /**
-     * If this node's children has been loaded. This should be called prior to calling any child methods on this node.
+     * If this node's children has been loaded. This should be called prior to calling any child methods on this node, unless
+     * the node was loaded with a visitor created by {@link Nodes#loadOnDemand(NodeVisitor)}, in which case the children
+     * are loaded when first accessed.
      *
      * @return true if the children have been loaded, false otherwise
      */
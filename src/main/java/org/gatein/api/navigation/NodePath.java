@@ -23,17 +23,19 @@
 package org.gatein.api.navigation;
 
 import org.gatein.api.internal.Parameters;
-import org.gatein.api.internal.StringJoiner;
-import org.gatein.api.internal.StringSplitter;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
+ * An immutable path to a navigation node. Paths are persistent: each path links to its parent path and shares it, so
+ * {@link #parent()} and appending a segment are constant time operations, and the hash code is computed once when the path
+ * is created. The array of segments is built when first needed for indexed access or iteration, and kept.
+ *
  * @author <a href="mailto:nscavell@redhat.com">Nick Scavelli</a>
  */
 public class NodePath implements Iterable<String>, Comparable<NodePath>, Serializable {
@@ -44,9 +46,10 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * 
      * @param elements the path elements
      * @return a node path
+     * @throws IllegalArgumentException if elements is null or empty, or contains a null element
      */
     public static NodePath path(String... elements) {
-        return new NodePath(Parameters.requireNonEmpty(elements, "elements"));
+        return ROOT_PATH.append(Parameters.requireNonEmpty(elements, "elements"));
     }
 
     /**
@@ -59,27 +62,59 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
     }
 
     /**
-     * Creates a node path with a value represented by the specified path (for example '/home/node1')
+     * Creates a node path with a value represented by the specified path (for example '/home/node1'). Segments are trimmed
+     * and empty segments are ignored, so '/home//node1/' results in the same path.
      * 
      * @param path the string representation of a path
      * @return a node path
+     * @throws IllegalArgumentException if path is null
      */
     public static NodePath fromString(String path) {
-        return new NodePath(StringSplitter.splitter("/").trim().ignoreEmptyStrings().split(path));
+        Parameters.requireNonNull(path, "path");
+
+        NodePath nodePath = ROOT_PATH;
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0)
+                end = length;
+
+            int segmentStart = start;
+            int segmentEnd = end;
+            while (segmentStart < segmentEnd && path.charAt(segmentStart) <= ' ')
+                segmentStart++;
+            while (segmentEnd > segmentStart && path.charAt(segmentEnd - 1) <= ' ')
+                segmentEnd--;
+
+            if (segmentStart < segmentEnd)
+                nodePath = new NodePath(nodePath, path.substring(segmentStart, segmentEnd));
+
+            start = end + 1;
+        }
+
+        return nodePath;
     }
 
-    private final List<String> pathList;
+    private final NodePath parent;
+    private final String segment;
+    private final int size;
+    private final int hash;
+    private transient volatile String[] segments;
 
     private NodePath() {
-        this(Collections.<String> emptyList());
+        this.parent = null;
+        this.segment = null;
+        this.size = 0;
+        this.hash = 1;
     }
 
-    private NodePath(String... pathList) {
-        this(Arrays.asList(pathList));
-    }
-
-    private NodePath(List<String> pathList) {
-        this.pathList = new ArrayList<String>(pathList);
+    private NodePath(NodePath parent, String segment) {
+        this.parent = parent;
+        this.segment = segment;
+        this.size = parent.size + 1;
+        // Same as List.hashCode() of the segments, so equal paths hash the same regardless of how they were built
+        this.hash = 31 * parent.hash + segment.hashCode();
     }
 
     /**
@@ -87,9 +122,16 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * 
      * @param elements the elements to append
      * @return the combined path
+     * @throws IllegalArgumentException if elements is null or contains a null element
      */
     public NodePath append(String... elements) {
-        return append(new NodePath(Parameters.requireNonNull(elements, "elements")));
+        Parameters.requireNonNull(elements, "elements");
+
+        NodePath path = this;
+        for (String element : elements) {
+            path = new NodePath(path, Parameters.requireNonNull(element, "element"));
+        }
+        return path;
     }
 
     /**
@@ -99,11 +141,16 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * @return the combined path
      */
     public NodePath append(NodePath path) {
-        List<String> list = new ArrayList<String>(pathList.size() + path.pathList.size());
-        list.addAll(pathList);
-        list.addAll(path.pathList);
-
-        return new NodePath(list);
+        if (path.size == 0)
+            return this;
+        if (size == 0)
+            return path;
+
+        NodePath result = this;
+        for (String segment : path.segments()) {
+            result = new NodePath(result, segment);
+        }
+        return result;
     }
 
     /**
@@ -117,14 +164,22 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
     }
 
     /**
-     * Returns the sub-path starting at fromIndex and ending at toIndex
+     * Returns the sub-path starting at fromIndex and ending at toIndex. Sub-paths starting at index 0 share this path and
+     * are returned without creating new objects.
      * 
      * @param fromIndex the start of the sub-path
      * @param toIndex the end of the sub-path
      * @return the sub-path
      */
     public NodePath subPath(int fromIndex, int toIndex) {
-        return new NodePath(new ArrayList<String>(pathList.subList(fromIndex, toIndex)));
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size);
+
+        NodePath prefix = ancestor(toIndex);
+        if (fromIndex == 0)
+            return prefix;
+
+        return ROOT_PATH.append(Arrays.copyOfRange(prefix.segments(), fromIndex, toIndex));
     }
 
     /**
@@ -134,7 +189,10 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * @return the specific part of the path
      */
     public String getSegment(int index) {
-        return pathList.get(index);
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+
+        return segments()[index];
     }
 
     /**
@@ -143,8 +201,7 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * @return the last part of the path
      */
     public String getLastSegment() {
-        int size = size();
-        return (size == 0) ? null : getSegment(size - 1);
+        return segment;
     }
 
     /**
@@ -153,10 +210,7 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * @return the path
      */
     public NodePath parent() {
-        if (pathList.isEmpty())
-            return null;
-
-        return subPath(0, size() - 1);
+        return parent;
     }
 
     /**
@@ -166,17 +220,10 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * @return true if the specified path is a descendant of this path
      */
     public boolean isParent(NodePath path) {
-        if (size() >= path.size())
+        if (size >= path.size)
             return false;
 
-        for (int i = 0; i < size(); i++) {
-            String name = getSegment(i);
-            if (!name.equals(path.getSegment(i))) {
-                return false;
-            }
-        }
-
-        return true;
+        return equals(path.ancestor(size));
     }
 
     /**
@@ -185,7 +232,7 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * @return
      */
     public int size() {
-        return pathList.size();
+        return size;
     }
 
     /**
@@ -194,7 +241,7 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * @return the path as an unmodifiable list of strings
      */
     public List<String> asList() {
-        return Collections.unmodifiableList(pathList);
+        return Collections.unmodifiableList(Arrays.asList(asArray()));
     }
 
     /**
@@ -203,38 +250,44 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
      * @return the path as an array of strings
      */
     public String[] asArray() {
-        return pathList.toArray(new String[pathList.size()]);
+        return segments().clone();
     }
 
     @Override
     public int compareTo(NodePath other) {
-        int size = size();
-        int otherSize = other.size();
-
-        for (int i = 0; i < otherSize; i++) {
-            if (i >= size)
-                break;
-
-            int result = getSegment(i).compareTo(other.getSegment(i));
-            if (result != 0)
-                return result;
+        int common = Math.min(size, other.size);
+        NodePath a = ancestor(common);
+        NodePath b = other.ancestor(common);
+        if (a != b) {
+            String[] segments = a.segments();
+            String[] otherSegments = b.segments();
+            for (int i = 0; i < common; i++) {
+                int result = segments[i].compareTo(otherSegments[i]);
+                if (result != 0)
+                    return result;
+            }
         }
 
-        return (size < otherSize ? -1 : (size == otherSize ? 0 : 1));
+        return (size < other.size ? -1 : (size == other.size ? 0 : 1));
     }
 
     @Override
     public Iterator<String> iterator() {
-        final Iterator<String> iterator = pathList.iterator();
+        final String[] segments = segments();
         return new Iterator<String>() {
+            private int index;
+
             @Override
             public boolean hasNext() {
-                return iterator.hasNext();
+                return index < segments.length;
             }
 
             @Override
             public String next() {
-                return iterator.next();
+                if (index >= segments.length)
+                    throw new NoSuchElementException();
+
+                return segments[index++];
             }
 
             @Override
@@ -252,17 +305,60 @@ public class NodePath implements Iterable<String>, Comparable<NodePath>, Seriali
             return false;
 
         NodePath that = (NodePath) o;
+        if (size != that.size || hash != that.hash)
+            return false;
 
-        return pathList.equals(that.pathList);
+        for (NodePath a = this, b = that; a != b && a.size > 0; a = a.parent, b = b.parent) {
+            if (!a.segment.equals(b.segment))
+                return false;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return pathList.hashCode();
+        return hash;
     }
 
     @Override
     public String toString() {
-        return StringJoiner.joiner("/").leading().join(pathList);
+        if (size == 0)
+            return "/";
+
+        StringBuilder sb = new StringBuilder();
+        for (String segment : segments()) {
+            sb.append('/').append(segment);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The segments of this path, which must not be modified
+     */
+    private String[] segments() {
+        String[] segments = this.segments;
+        if (segments == null) {
+            segments = new String[size];
+            for (NodePath path = this; path.size > 0; path = path.parent) {
+                segments[path.size - 1] = path.segment;
+            }
+            this.segments = segments;
+        }
+        return segments;
+    }
+
+    /**
+     * Returns the ancestor of this path (or this path itself) with the specified size.
+     */
+    private NodePath ancestor(int size) {
+        NodePath path = this;
+        while (path.size > size) {
+            path = path.parent;
+        }
+        return path;
+    }
+
+    private Object readResolve() {
+        return (size == 0) ? ROOT_PATH : this;
     }
 }
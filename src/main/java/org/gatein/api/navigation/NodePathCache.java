@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.navigation;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.gatein.api.internal.Parameters;
+
+/**
+ * A bounded, thread-safe cache of {@link NodePath} objects keyed by the string they were parsed from. Resolving a path which
+ * is already cached returns the cached instance without allocating anything, which makes it suitable for resolving the
+ * node path of every portal request.
+ * <p>
+ * The cache has a fixed number of slots and each string maps to a single slot. Caching a path overwrites whatever path was
+ * previously cached in its slot, regardless of how often that path was requested, so two frequently requested paths which
+ * collide on the same slot keep evicting each other. There is no usage bookkeeping.
+ * </p>
+ *
+ * @see NodePath#fromString(String)
+ */
+public final class NodePathCache {
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+
+    /**
+     * Creates a cache that holds up to the specified number of paths. The capacity is rounded up to the next power of two.
+     *
+     * @param capacity the maximum number of cached paths
+     * @throws IllegalArgumentException if capacity is less than 1 or greater than 2^30
+     */
+    public NodePathCache(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30))
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        this.entries = new AtomicReferenceArray<Entry>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the node path represented by the specified string, parsing and caching it if it's not cached already.
+     *
+     * @param path the string representation of a path
+     * @return a node path
+     * @throws IllegalArgumentException if path is null
+     * @see NodePath#fromString(String)
+     */
+    public NodePath fromString(String path) {
+        Parameters.requireNonNull(path, "path");
+
+        int index = spread(path.hashCode()) & mask;
+        Entry entry = entries.get(index);
+        if (entry != null && entry.key.equals(path))
+            return entry.path;
+
+        NodePath nodePath = NodePath.fromString(path);
+        entries.set(index, new Entry(path, nodePath));
+        return nodePath;
+    }
+
+    /**
+     * Removes all paths from the cache.
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final NodePath path;
+
+        private Entry(String key, NodePath path) {
+            this.key = key;
+            this.path = path;
+        }
+    }
+}
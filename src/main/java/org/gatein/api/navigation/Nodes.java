@@ -23,8 +23,12 @@
 package org.gatein.api.navigation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author <a href="mailto:nscavell@redhat.com">Nick Scavelli</a>
@@ -120,6 +124,218 @@ public class Nodes {
         return new DelegatingPathVisitor(path, visitor);
     }
 
+    /**
+     * Creates a <code>NodeVisitor</code> which loads the nodes visited by the specified visitor up front, and the children
+     * of every other node on demand when they are first accessed, rather than failing with an
+     * <code>IllegalStateException</code>. This avoids over-fetching with {@link #visitAll()} when it is not known up front
+     * which branches will be used, such as when rendering menus. Implementations may load the children of sibling nodes
+     * together, and load the children of a node only once when they are accessed concurrently.
+     *
+     * @param visitor the visitor determining the nodes to load up front
+     * @return a visitor object
+     */
+    public static NodeVisitor loadOnDemand(NodeVisitor visitor) {
+        if (visitor == null)
+            throw new IllegalArgumentException("visitor cannot be null");
+
+        return new OnDemandVisitor(visitor);
+    }
+
+    /**
+     * Returns true if the visitor, the visitor it delegates to after a path, or any of the visitors it combines was created
+     * by {@link #loadOnDemand(NodeVisitor)}. This is intended for navigation implementations.
+     *
+     * @param visitor the visitor
+     * @return true if nodes not visited should load their children on demand
+     */
+    public static boolean isLoadOnDemand(NodeVisitor visitor) {
+        if (visitor instanceof DelegatingPathVisitor)
+            return isLoadOnDemand(((DelegatingPathVisitor) visitor).visitor);
+        if (visitor instanceof PathsVisitor)
+            return isLoadOnDemand(((PathsVisitor) visitor).visitor);
+        if (visitor instanceof NotVisitor)
+            return isLoadOnDemand(((NotVisitor) visitor).visitor);
+        if (visitor instanceof AndVisitor)
+            return isLoadOnDemand(((AndVisitor) visitor).visitors);
+        if (visitor instanceof OrVisitor)
+            return isLoadOnDemand(((OrVisitor) visitor).visitors);
+
+        return visitor instanceof OnDemandVisitor;
+    }
+
+    private static boolean isLoadOnDemand(NodeVisitor[] visitors) {
+        for (NodeVisitor visitor : visitors) {
+            if (isLoadOnDemand(visitor))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates a <code>NodeVisitor</code> which will visit nodes matching any of the paths. The paths are compiled into a tree
+     * of segments, so each node is matched once rather than against every path, and branches which do not lead to any of
+     * the paths are not loaded. Each matching segment will load all children until the end of a path is met, in which
+     * nothing else is loaded.
+     * <p>
+     * The paths are relative to the node the visit starts from, which is the root node unless the visitor is used after a
+     * path, such as with {@link #visitNodes(NodePath, NodeVisitor)}. Nodes are matched by
+     * {@link NodeVisitor.NodeDetails#getNodePath()}, so nodes visited without details are not loaded.
+     * </p>
+     *
+     * @param paths the paths to the nodes
+     * @return a visitor object
+     * @throws IllegalArgumentException if paths is null or contains null
+     */
+    public static NodeVisitor visitPaths(Collection<NodePath> paths) {
+        return visitPaths(paths, NONE);
+    }
+
+    /**
+     * Creates a <code>NodeVisitor</code> which will visit nodes matching any of the paths. Each matching segment will load
+     * all children until the end of a path is met, in which the visitor parameter is used to determine further visiting.
+     *
+     * @param paths the paths to the nodes
+     * @param visitor the visitor object used once a path is met
+     * @return a visitor object
+     * @throws IllegalArgumentException if paths or visitor is null, or paths contains null
+     * @see #visitPaths(Collection)
+     */
+    public static NodeVisitor visitPaths(Collection<NodePath> paths, NodeVisitor visitor) {
+        if (paths == null)
+            throw new IllegalArgumentException("paths cannot be null");
+        if (visitor == null)
+            throw new IllegalArgumentException("visitor cannot be null");
+
+        PathTrie trie = new PathTrie();
+        for (NodePath path : paths) {
+            if (path == null)
+                throw new IllegalArgumentException("paths cannot contain null");
+
+            trie.add(path);
+        }
+        return trie.isEmpty() ? NONE : new PathsVisitor(trie, visitor);
+    }
+
+    /**
+     * Creates a <code>NodeVisitor</code> which visits children of a node only if all of the visitors do. Evaluation stops at
+     * the first visitor which does not, and combining with {@link #visitNone()} yields <code>visitNone()</code>, which still
+     * loads children on demand if any of the visitors was created by {@link #loadOnDemand(NodeVisitor)}.
+     *
+     * @param visitors the visitors
+     * @return a visitor object
+     * @throws IllegalArgumentException if visitors is null, empty or contains null
+     */
+    public static NodeVisitor and(NodeVisitor... visitors) {
+        List<NodeVisitor> flattened = flatten(visitors, true);
+        int height = -1;
+        List<NodeVisitor> others = new ArrayList<NodeVisitor>(flattened.size());
+        for (NodeVisitor visitor : flattened) {
+            if (visitor instanceof DepthVisitor) {
+                int visitorHeight = ((DepthVisitor) visitor).height;
+                if (visitorHeight >= 0 && (height < 0 || visitorHeight < height)) {
+                    height = visitorHeight;
+                }
+            } else {
+                others.add(visitor);
+            }
+        }
+
+        if (height == 0)
+            return isLoadOnDemand(visitors) ? loadOnDemand(NONE) : NONE;
+        if (height > 0 || others.isEmpty()) {
+            others.add(0, visitNodes(height));
+        }
+        return (others.size() == 1) ? others.get(0) : new AndVisitor(others.toArray(new NodeVisitor[others.size()]));
+    }
+
+    /**
+     * Creates a <code>NodeVisitor</code> which visits children of a node if any of the visitors does. Evaluation stops at
+     * the first visitor which does, and combining with {@link #visitAll()} yields <code>visitAll()</code>.
+     *
+     * @param visitors the visitors
+     * @return a visitor object
+     * @throws IllegalArgumentException if visitors is null, empty or contains null
+     */
+    public static NodeVisitor or(NodeVisitor... visitors) {
+        List<NodeVisitor> flattened = flatten(visitors, false);
+        int height = 0;
+        List<NodeVisitor> others = new ArrayList<NodeVisitor>(flattened.size());
+        for (NodeVisitor visitor : flattened) {
+            if (visitor instanceof DepthVisitor) {
+                int visitorHeight = ((DepthVisitor) visitor).height;
+                if (visitorHeight < 0 || (height >= 0 && visitorHeight > height)) {
+                    height = visitorHeight;
+                }
+            } else {
+                others.add(visitor);
+            }
+        }
+
+        if (height < 0)
+            return ALL;
+        if (height > 0 || others.isEmpty()) {
+            others.add(0, visitNodes(height));
+        }
+        return (others.size() == 1) ? others.get(0) : new OrVisitor(others.toArray(new NodeVisitor[others.size()]));
+    }
+
+    /**
+     * Creates a <code>NodeVisitor</code> which visits children of a node if the visitor does not. The root node is always
+     * visited, so <code>and(visitAll(), not(visitor))</code> loads the tree except the nodes excluded by the visitor.
+     *
+     * @param visitor the visitor to negate
+     * @return a visitor object
+     * @throws IllegalArgumentException if visitor is null
+     */
+    public static NodeVisitor not(NodeVisitor visitor) {
+        if (visitor == null)
+            throw new IllegalArgumentException("visitor cannot be null");
+
+        return new NotVisitor(visitor);
+    }
+
+    /**
+     * A visitor which visits children of the root and of visible nodes only, according to
+     * {@link NodeVisitor.NodeDetails#getVisibility()}. Combine it with {@link #and(NodeVisitor...)} to skip hidden
+     * branches, for example <code>and(visitAll(), visitVisible())</code> when rendering a menu.
+     *
+     * @return a visitor object
+     */
+    public static NodeVisitor visitVisible() {
+        return VISIBLE;
+    }
+
+    /**
+     * A visitor which visits children of the root and of nodes with a page only, according to
+     * {@link NodeVisitor.NodeDetails#getPageId()}. Combine it with {@link #and(NodeVisitor...)} to skip branches below
+     * nodes which do not link to a page.
+     *
+     * @return a visitor object
+     */
+    public static NodeVisitor visitWithPage() {
+        return WITH_PAGE;
+    }
+
+    private static List<NodeVisitor> flatten(NodeVisitor[] visitors, boolean and) {
+        if (visitors == null || visitors.length == 0)
+            throw new IllegalArgumentException("visitors cannot be null or empty");
+
+        List<NodeVisitor> flattened = new ArrayList<NodeVisitor>(visitors.length);
+        for (NodeVisitor visitor : visitors) {
+            if (visitor == null)
+                throw new IllegalArgumentException("visitors cannot contain null");
+
+            if (and && visitor instanceof AndVisitor) {
+                flattened.addAll(Arrays.asList(((AndVisitor) visitor).visitors));
+            } else if (!and && visitor instanceof OrVisitor) {
+                flattened.addAll(Arrays.asList(((OrVisitor) visitor).visitors));
+            } else {
+                flattened.add(visitor);
+            }
+        }
+        return flattened;
+    }
+
     // ----------------- Private visitor stuff
 
     private static final NodeVisitor NONE = new DepthVisitor(0);
@@ -144,27 +360,175 @@ public class Nodes {
 
     // NodePath visitor
     private static class DelegatingPathVisitor implements NodeVisitor {
-        private final NodePath path;
+        private final String[] segments;
         private final NodeVisitor visitor;
 
         public DelegatingPathVisitor(NodePath path, NodeVisitor visitor) {
-            this.path = path;
+            this.segments = path.asArray();
             this.visitor = visitor;
         }
 
         @Override
         public boolean visit(int depth, String name, NodeDetails details) {
-            if (depth < path.size()) {
-                return depth == 0 || path.getSegment(depth - 1).equals(name);
-            } else if (depth == path.size()) {
-                if (depth == 0 || path.getSegment(depth - 1).equals(name)) {
+            if (depth < segments.length) {
+                return depth == 0 || segments[depth - 1].equals(name);
+            } else if (depth == segments.length) {
+                if (depth == 0 || segments[depth - 1].equals(name)) {
                     return visitor.visit(0, name, details);
                 } else {
                     return false;
                 }
             } else {
-                return visitor.visit(depth - path.size(), name, details);
+                return visitor.visit(depth - segments.length, name, details);
+            }
+        }
+    }
+
+    // Combining visitors
+    private static class AndVisitor implements NodeVisitor {
+        private final NodeVisitor[] visitors;
+
+        public AndVisitor(NodeVisitor[] visitors) {
+            this.visitors = visitors;
+        }
+
+        @Override
+        public boolean visit(int depth, String name, NodeDetails details) {
+            for (NodeVisitor visitor : visitors) {
+                if (!visitor.visit(depth, name, details))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static class OrVisitor implements NodeVisitor {
+        private final NodeVisitor[] visitors;
+
+        public OrVisitor(NodeVisitor[] visitors) {
+            this.visitors = visitors;
+        }
+
+        @Override
+        public boolean visit(int depth, String name, NodeDetails details) {
+            for (NodeVisitor visitor : visitors) {
+                if (visitor.visit(depth, name, details))
+                    return true;
             }
+            return false;
+        }
+    }
+
+    private static class NotVisitor implements NodeVisitor {
+        private final NodeVisitor visitor;
+
+        public NotVisitor(NodeVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public boolean visit(int depth, String name, NodeDetails details) {
+            return depth == 0 || !visitor.visit(depth, name, details);
+        }
+    }
+
+    private static final NodeVisitor VISIBLE = new NodeVisitor() {
+        @Override
+        public boolean visit(int depth, String name, NodeDetails details) {
+            return details == null || details.getVisibility() == null || details.getVisibility().isVisible();
+        }
+    };
+
+    private static final NodeVisitor WITH_PAGE = new NodeVisitor() {
+        @Override
+        public boolean visit(int depth, String name, NodeDetails details) {
+            return details == null || details.getPageId() != null;
+        }
+    };
+
+    // Multiple paths visitor
+    private static class PathTrie {
+        private Map<String, PathTrie> children;
+        private boolean end;
+
+        void add(NodePath path) {
+            PathTrie trie = this;
+            for (String segment : path) {
+                if (trie.children == null) {
+                    trie.children = new HashMap<String, PathTrie>();
+                }
+                PathTrie child = trie.children.get(segment);
+                if (child == null) {
+                    child = new PathTrie();
+                    trie.children.put(segment, child);
+                }
+                trie = child;
+            }
+            trie.end = true;
+        }
+
+        PathTrie get(String segment) {
+            return (children == null) ? null : children.get(segment);
+        }
+
+        boolean isEmpty() {
+            return children == null && !end;
+        }
+    }
+
+    private static class PathsVisitor implements NodeVisitor {
+        private final PathTrie root;
+        private final NodeVisitor visitor;
+
+        public PathsVisitor(PathTrie root, NodeVisitor visitor) {
+            this.root = root;
+            this.visitor = visitor;
+        }
+
+        @Override
+        public boolean visit(int depth, String name, NodeDetails details) {
+            if (depth == 0)
+                return root.children != null || visitor.visit(0, name, details);
+
+            // Without the path of the node it cannot be told whether it leads to any of the paths, so it is not loaded
+            NodePath path = (details == null) ? null : details.getNodePath();
+            if (path == null || path.size() < depth)
+                return false;
+
+            // The paths are relative to the node the visit started from, which is depth segments above this node. The node
+            // is either on the way to a path, or below the deepest path it is in, which may also be a prefix of other paths.
+            PathTrie trie = root;
+            int matched = 0;
+            int end = root.end ? 0 : -1;
+            for (int i = path.size() - depth; i < path.size(); i++) {
+                trie = trie.get(path.getSegment(i));
+                if (trie == null)
+                    break;
+
+                matched++;
+                if (trie.end) {
+                    end = matched;
+                }
+            }
+
+            if (trie != null && trie.children != null)
+                return true;
+
+            return end >= 0 && visitor.visit(depth - end, name, details);
+        }
+    }
+
+    // On demand visitor
+    private static class OnDemandVisitor implements NodeVisitor {
+        private final NodeVisitor visitor;
+
+        public OnDemandVisitor(NodeVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public boolean visit(int depth, String name, NodeDetails details) {
+            return visitor.visit(depth, name, details);
         }
     }
 
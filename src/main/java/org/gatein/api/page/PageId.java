@@ -22,6 +22,8 @@
 
 package org.gatein.api.page;
 
+import org.gatein.api.internal.IdCodec;
+import org.gatein.api.internal.Interner;
 import org.gatein.api.internal.Parameters;
 import org.gatein.api.security.Group;
 import org.gatein.api.security.User;
@@ -38,9 +40,40 @@ import java.util.Formatter;
  * @author <a href="mailto:nscavell@redhat.com">Nick Scavelli</a>
  */
 public class PageId implements Formattable, Serializable {
+    private static final Interner<PageId> INTERNER = new Interner<PageId>();
+
+    /**
+     * Returns the canonical page id for a page with the specified site name and page name
+     *
+     * @param siteName the site name
+     * @param pageName the page name
+     * @return the canonical page id
+     */
+    public static PageId of(String siteName, String pageName) {
+        return INTERNER.intern(new PageId(SiteId.of(siteName), pageName));
+    }
+
+    /**
+     * Returns the canonical page id for a page with the specified site id and page name. Canonical ids are shared, so
+     * equal ids obtained from this method are the same instance.
+     *
+     * @param siteId the site id
+     * @param pageName the page name
+     * @return the canonical page id
+     */
+    public static PageId of(SiteId siteId, String pageName) {
+        Parameters.requireNonNull(siteId, "siteId");
+
+        return INTERNER.intern(new PageId(SiteId.of(siteId.getType(), siteId.getName()), pageName));
+    }
+
     private final SiteId siteId;
     private final String pageName;
 
+    // Lazily computed string forms, see IdCodec
+    private transient String string;
+    private transient String urlSafeString;
+
     /**
      * Creates a new page id with the specified site name and page name
      * 
@@ -121,44 +154,27 @@ public class PageId implements Formattable, Serializable {
 
     @Override
     public String toString() {
-        return String.format("Page.Id[%s]", this);
+        String s = string;
+        if (s == null) {
+            string = s = IdCodec.pageIdToString(siteId, pageName);
+        }
+        return s;
     }
 
     @Override
     public void formatTo(Formatter formatter, int flags, int width, int precision) {
         if ((flags & FormattableFlags.ALTERNATE) == FormattableFlags.ALTERNATE) {
-            formatter.format("%#s.%s", siteId, pageName);
+            String s = urlSafeString;
+            if (s == null) {
+                urlSafeString = s = IdCodec.pageIdToUrlSafeString(siteId, pageName);
+            }
+            formatter.format("%s", s);
         } else {
-            formatter.format("siteId=[%s], pageName=%s", siteId, pageName);
+            formatter.format("%s", IdCodec.pageIdToFormattedString(siteId, pageName));
         }
     }
 
     public static PageId fromString(String idAsString) {
-        Parameters.requireNonNull(idAsString, "idAsString");
-
-        int len;
-        if (idAsString.startsWith("Page.Id[")) {
-            idAsString = idAsString.substring(8, idAsString.length());
-            len = idAsString.length() - 1; // cut off trailing ]
-        } else {
-            len = idAsString.length();
-        }
-
-        int end;
-        int start;
-        String pageName;
-        if (idAsString.startsWith("siteId=[")) {
-            start = 8;
-            end = idAsString.lastIndexOf("], pageName=");
-            pageName = idAsString.substring(end + 12, len);
-        } else {
-            start = 0;
-            end = idAsString.lastIndexOf('.');
-            pageName = idAsString.substring(end + 1, len);
-        }
-
-        SiteId siteId = SiteId.fromString(idAsString.substring(start, end));
-
-        return new PageId(siteId, pageName);
+        return IdCodec.decodePageId(idAsString);
     }
 }
@@ -23,11 +23,23 @@
 package org.gatein.api.page;
 
 import org.gatein.api.common.Filter;
+import org.gatein.api.common.KeysetPagination;
 import org.gatein.api.common.Pagination;
+import org.gatein.api.common.Predicate;
+import org.gatein.api.common.Projection;
+import org.gatein.api.common.Property;
 import org.gatein.api.internal.ObjectToStringBuilder;
+import org.gatein.api.internal.Parameters;
+import org.gatein.api.security.Membership;
+import org.gatein.api.security.Permission;
 import org.gatein.api.site.SiteId;
 import org.gatein.api.site.SiteType;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 /**
  * An immutable PageQuery object that can be used to query pages. This object is created by using the builder
  * {@link PageQuery.Builder}.
@@ -35,26 +47,97 @@ import org.gatein.api.site.SiteType;
  * @author <a href="mailto:nscavell@redhat.com">Nick Scavelli</a>
  */
 public class PageQuery {
+    /**
+     * The name of a page, for use in predicates
+     */
+    public static final Property<Page> NAME = new Property<Page>("name") {
+        @Override
+        public Object getValue(Page page) {
+            return page.getName();
+        }
+    };
+
+    /**
+     * The {@link SiteType} of the site of a page, for use in predicates
+     */
+    public static final Property<Page> SITE_TYPE = new Property<Page>("siteType") {
+        @Override
+        public Object getValue(Page page) {
+            return page.getSiteId().getType();
+        }
+    };
+
+    /**
+     * The name of the site of a page, for use in predicates
+     */
+    public static final Property<Page> SITE_NAME = new Property<Page>("siteName") {
+        @Override
+        public Object getValue(Page page) {
+            return page.getSiteId().getName();
+        }
+    };
+
+    /**
+     * The display name of a page, for use in predicates
+     */
+    public static final Property<Page> DISPLAY_NAME = new Property<Page>("displayName") {
+        @Override
+        public Object getValue(Page page) {
+            return page.getDisplayName();
+        }
+    };
+
+    /**
+     * The memberships of the access permission of a page, for use in predicates
+     */
+    public static final Property<Page> ACCESS_PERMISSION = new Property<Page>("accessPermission") {
+        @Override
+        public Object getValue(Page page) {
+            return memberships(page.getAccessPermission());
+        }
+    };
+
+    private static Set<Membership> memberships(Permission permission) {
+        return (permission == null) ? null : permission.getMemberships();
+    }
+
     private final SiteType siteType;
     private final String siteName;
     private final String displayName;
 
     // Common query fields
     private final Pagination pagination;
+    private final KeysetPagination<PageId> keysetPagination;
+    private final List<Predicate<Page>> predicates;
     private final Filter<Page> filter;
+    private final Projection projection;
 
-    private PageQuery(SiteType siteType, String siteName, String displayName, Pagination pagination, Filter<Page> filter) {
+    private PageQuery(SiteType siteType, String siteName, String displayName, Pagination pagination,
+            KeysetPagination<PageId> keysetPagination, List<Predicate<Page>> predicates, Filter<Page> filter,
+            Projection projection) {
         this.siteType = siteType;
         this.siteName = siteName;
         this.displayName = displayName;
         this.pagination = pagination;
+        this.keysetPagination = keysetPagination;
+        this.predicates = predicates;
         this.filter = filter;
+        this.projection = projection;
     }
 
     public Pagination getPagination() {
         return pagination;
     }
 
+    /**
+     * The keyset pagination of this query, where the sort key is the id of the last page seen.
+     *
+     * @return the keyset pagination, or null if the query uses offset pagination
+     */
+    public KeysetPagination<PageId> getKeysetPagination() {
+        return keysetPagination;
+    }
+
     /**
      * Convenience method for creating a new PageQuery with pagination set to the next page represented by by
      * {@link org.gatein.api.common.Pagination#getNext()}
@@ -75,6 +158,41 @@ public class PageQuery {
         return new Builder().from(this).withPreviousPage().build();
     }
 
+    /**
+     * Convenience method for creating a new PageQuery with keyset pagination set to the page after the specified page,
+     * keeping the limit of the current pagination.
+     *
+     * @param lastPageId the id of the last page of the current page of results
+     * @return a new PageQuery with keyset pagination set to the next page.
+     */
+    public PageQuery nextPage(PageId lastPageId) {
+        return new Builder().from(this).withNextPage(lastPageId).build();
+    }
+
+    /**
+     * The predicates of this query, which all have to match. Unlike the filter, predicates can be translated into index
+     * lookups by implementations.
+     *
+     * @return the predicates, which is empty if the query has no predicates
+     */
+    public List<Predicate<Page>> getPredicates() {
+        return predicates;
+    }
+
+    /**
+     * The projection used by summary queries, such as {@link org.gatein.api.Portal#findPageSummaries(PageQuery)}.
+     *
+     * @return the projection, which is {@link Projection#ID_AND_DISPLAY_NAME} unless set otherwise
+     */
+    public Projection getProjection() {
+        return projection;
+    }
+
+    /**
+     * The filter of this query, which is applied after the predicates.
+     *
+     * @return the filter, which can be null
+     */
     public Filter<Page> getFilter() {
         return filter;
     }
@@ -94,7 +212,8 @@ public class PageQuery {
     @Override
     public String toString() {
         return ObjectToStringBuilder.toStringBuilder(PageQuery.class).add("siteType", siteType).add("siteName", siteName)
-                .add("displayName", displayName).add("pagination", pagination).add("filter", filter).toString();
+                .add("displayName", displayName).add("pagination", pagination).add("keysetPagination", keysetPagination)
+                .add("predicates", predicates).add("filter", filter).toString();
     }
 
     /**
@@ -110,8 +229,11 @@ public class PageQuery {
         private SiteType siteType;
         private String siteName;
         private String displayName;
+        private List<Predicate<Page>> predicates = new ArrayList<Predicate<Page>>();
+        private Projection projection = Projection.ID_AND_DISPLAY_NAME;
         private Filter<Page> filter;
         private Pagination pagination;
+        private KeysetPagination<PageId> keysetPagination;
 
         public Builder() {
             this.pagination = DEFAULT_PAGINATION;
@@ -180,6 +302,34 @@ public class PageQuery {
          */
         public Builder withPagination(Pagination pagination) {
             this.pagination = pagination;
+            if (pagination != null) {
+                this.keysetPagination = null;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the keyset pagination object of this builder to start after the specified page id with the specified limit.
+         *
+         * @param after the id of the last page seen, or null for the first page
+         * @param limit the limit of the pagination
+         * @return this builder
+         */
+        public Builder withKeysetPagination(PageId after, int limit) {
+            return withKeysetPagination(new KeysetPagination<PageId>(after, limit));
+        }
+
+        /**
+         * Sets the keyset pagination object of this builder, which replaces any offset pagination.
+         *
+         * @param keysetPagination the keyset pagination object
+         * @return this builder
+         */
+        public Builder withKeysetPagination(KeysetPagination<PageId> keysetPagination) {
+            this.keysetPagination = keysetPagination;
+            if (keysetPagination != null) {
+                this.pagination = null;
+            }
             return this;
         }
 
@@ -196,6 +346,22 @@ public class PageQuery {
             return this;
         }
 
+        /**
+         * Sets the keyset pagination of this builder to the page after the specified page id, keeping the limit of the
+         * current keyset or offset pagination.
+         *
+         * @param lastPageId the id of the last page of the current page of results
+         * @return this builder
+         */
+        public Builder withNextPage(PageId lastPageId) {
+            if (keysetPagination != null) {
+                return withKeysetPagination(keysetPagination.getNext(lastPageId));
+            } else {
+                int limit = (pagination == null) ? DEFAULT_LIMIT : pagination.getLimit();
+                return withKeysetPagination(lastPageId, limit);
+            }
+        }
+
         /**
          * Sets the pagination of this builder to <code>pagination.getPrevious()</code> if it's not null.
          *
@@ -209,6 +375,28 @@ public class PageQuery {
             return this;
         }
 
+        /**
+         * Sets the projection of this builder, which determines the properties included in summaries.
+         *
+         * @param projection the projection
+         * @return this builder
+         */
+        public Builder withProjection(Projection projection) {
+            this.projection = Parameters.requireNonNull(projection, "projection");
+            return this;
+        }
+
+        /**
+         * Adds a predicate to this builder. A page has to match all predicates to be returned.
+         *
+         * @param predicate the predicate
+         * @return this builder
+         */
+        public Builder where(Predicate<Page> predicate) {
+            predicates.add(Parameters.requireNonNull(predicate, "predicate"));
+            return this;
+        }
+
         /**
          * Sets the filter for this builder
          *
@@ -226,7 +414,10 @@ public class PageQuery {
          * @return a new <code>PageQuery</code> object
          */
         public PageQuery build() {
-            return new PageQuery(siteType, siteName, displayName, pagination, filter);
+            List<Predicate<Page>> predicates = this.predicates.isEmpty() ? Collections.<Predicate<Page>> emptyList()
+                    : Collections.unmodifiableList(new ArrayList<Predicate<Page>>(this.predicates));
+            return new PageQuery(siteType, siteName, displayName, pagination, keysetPagination, predicates, filter,
+                    projection);
         }
 
         /**
@@ -236,9 +427,12 @@ public class PageQuery {
          * @return a new builder
          */
         public Builder from(PageQuery query) {
-            return new Builder().withSiteType(query.getSiteType()).withSiteName(query.getSiteName())
+            Builder builder = new Builder();
+            builder.predicates.addAll(query.getPredicates());
+            return builder.withSiteType(query.getSiteType()).withSiteName(query.getSiteName())
                     .withDisplayName(query.getDisplayName()).withPagination(query.getPagination())
-                    .withFilter(query.getFilter());
+                    .withKeysetPagination(query.getKeysetPagination()).withFilter(query.getFilter())
+                    .withProjection(query.getProjection());
         }
     }
 }
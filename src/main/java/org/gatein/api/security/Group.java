@@ -24,6 +24,7 @@ package org.gatein.api.security;
 
 import java.io.Serializable;
 
+import org.gatein.api.internal.Interner;
 import org.gatein.api.internal.Parameters;
 import org.gatein.api.internal.StringJoiner;
 import org.gatein.api.internal.ObjectToStringBuilder;
@@ -35,6 +36,31 @@ import org.gatein.api.internal.StringSplitter;
  * @author <a href="mailto:nscavell@redhat.com">Nick Scavelli</a>
  */
 public class Group implements Serializable {
+    private static final Interner<Group> INTERNER = new Interner<Group>();
+
+    /**
+     * Returns the canonical group with the specified hierarchy. For example <code>Group.of("platform", "administrators")</code>
+     *
+     * @param group the group
+     * @return the canonical group
+     * @throws IllegalArgumentException if group is null or empty
+     */
+    public static Group of(String... group) {
+        return INTERNER.intern(new Group(group));
+    }
+
+    /**
+     * Returns the canonical group with the specified id. For example <code>Group.of("/platform/administrators")</code>.
+     * Canonical groups are shared, so equal groups obtained from this method are the same instance.
+     *
+     * @param id the id of the group
+     * @return the canonical group
+     * @throws IllegalArgumentException if id is null
+     */
+    public static Group of(String id) {
+        return INTERNER.intern(new Group(id));
+    }
+
     private final String id;
 
     /**
@@ -73,6 +99,21 @@ public class Group implements Serializable {
         return id;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        return id.equals(((Group) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
     @Override
     public String toString() {
         return ObjectToStringBuilder.toStringBuilder(getClass()).add("groupId", id).toString();
@@ -24,6 +24,7 @@ package org.gatein.api.security;
 
 import java.io.Serializable;
 
+import org.gatein.api.internal.Interner;
 import org.gatein.api.internal.Parameters;
 import org.gatein.api.internal.StringSplitter;
 
@@ -45,6 +46,32 @@ public class Membership implements Serializable {
         return new Membership(ANY, new Group(group));
     }
 
+    private static final Interner<Membership> INTERNER = new Interner<Membership>();
+
+    /**
+     * Returns the canonical membership for users with the specified membership type in the specified group. Canonical
+     * memberships are shared, so equal memberships obtained from this method are the same instance.
+     *
+     * @param membershipType the membership type
+     * @param group the group
+     * @return the canonical membership
+     */
+    public static Membership of(String membershipType, Group group) {
+        Parameters.requireNonNull(group, "group");
+
+        return INTERNER.intern(new Membership(membershipType, Group.of(group.getId())));
+    }
+
+    /**
+     * Returns the canonical membership for the specified user
+     *
+     * @param user the user
+     * @return the canonical membership
+     */
+    public static Membership of(User user) {
+        return INTERNER.intern(new Membership(user));
+    }
+
     private final String membershipType;
     private final Group group;
 
@@ -87,6 +114,25 @@ public class Membership implements Serializable {
         return group;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        Membership that = (Membership) o;
+
+        return membershipType.equals(that.membershipType) && (group == null ? that.group == null : group.equals(that.group));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = membershipType.hashCode();
+        result = 31 * result + (group == null ? 0 : group.hashCode());
+        return result;
+    }
+
     @Override
     public String toString() {
         if (group == null) {
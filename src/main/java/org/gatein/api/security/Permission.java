@@ -58,6 +58,9 @@ public class Permission implements Serializable {
 
     private final Set<Membership> memberships;
 
+    // Compiled form of this permission, see PermissionEvaluator
+    transient PermissionEvaluator.CompiledPermission compiled;
+
     /**
      * Creates a permission where everyone can access the resource (public)
      */
@@ -0,0 +1,233 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.security;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gatein.api.internal.Parameters;
+
+/**
+ * A bounded cache of permission decisions keyed by user and {@link Permission}. Permissions are compared by identity, as
+ * permissions are immutable and a resource gets a new permission instance when its permission changes. Entries are evicted
+ * in least recently used order once the cache is full, and expire after a fixed time to live.
+ * <p>
+ * Implementations of {@link org.gatein.api.Portal#hasPermission(User, Permission)} should call
+ * {@link #invalidate(User)} when the memberships of a user change and {@link #invalidate(Permission)} when a resource
+ * stops using a permission. To avoid caching a decision computed from stale memberships, obtain the
+ * {@link #getGeneration() generation} before computing a decision and pass it to
+ * {@link #put(User, Permission, boolean, long)}; the decision is dropped if the cache was invalidated in between.
+ * </p>
+ */
+public class PermissionCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final long ttlNanos;
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Creates a new permission cache
+     *
+     * @param maximumSize the maximum number of decisions kept
+     * @param ttl the time to live of a decision
+     * @param unit the unit of ttl
+     * @throws IllegalArgumentException if maximumSize or ttl is not positive, or unit is null
+     */
+    public PermissionCache(int maximumSize, long ttl, TimeUnit unit) throws IllegalArgumentException {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("maximumSize must be positive");
+        if (ttl <= 0)
+            throw new IllegalArgumentException("ttl must be positive");
+        Parameters.requireNonNull(unit, "unit");
+
+        this.ttlNanos = unit.toNanos(ttl);
+        this.segments = new Segment[SEGMENTS];
+        int segmentSize = Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Returns the cached decision for the specified user and permission
+     *
+     * @param user the user
+     * @param permission the permission
+     * @return the decision, or null if not cached or expired
+     */
+    public Boolean get(User user, Permission permission) {
+        Key key = new Key(user, permission);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Decision entry = segment.get(key);
+            if (entry == null)
+                return null;
+
+            if (System.nanoTime() - entry.created >= ttlNanos) {
+                segment.remove(key);
+                return null;
+            }
+            return entry.decision;
+        }
+    }
+
+    /**
+     * Returns the current generation of this cache, which changes whenever entries are invalidated
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a decision for the specified user and permission, unless the cache was invalidated since the specified
+     * generation was obtained.
+     *
+     * @param user the user
+     * @param permission the permission
+     * @param decision true if the user has permission
+     * @param generation the generation obtained before the decision was computed
+     */
+    public void put(User user, Permission permission, boolean decision, long generation) {
+        Key key = new Key(user, permission);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            if (generation == this.generation.get()) {
+                segment.put(key, new Decision(decision, System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Removes all decisions for the specified user
+     *
+     * @param user the user
+     */
+    public void invalidate(User user) {
+        Parameters.requireNonNull(user, "user");
+
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Iterator<Key> iter = segment.keySet().iterator(); iter.hasNext();) {
+                    Key key = iter.next();
+                    if (key.userId == null ? user.getId() == null : key.userId.equals(user.getId()))
+                        iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all decisions for the specified permission
+     *
+     * @param permission the permission
+     */
+    public void invalidate(Permission permission) {
+        Parameters.requireNonNull(permission, "permission");
+
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Iterator<Key> iter = segment.keySet().iterator(); iter.hasNext();) {
+                    if (iter.next().permission == permission)
+                        iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all decisions
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Segment segmentFor(Key key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Key {
+        private final String userId;
+        private final Permission permission;
+        private final int hash;
+
+        private Key(User user, Permission permission) {
+            this.userId = Parameters.requireNonNull(user, "user").getId();
+            this.permission = Parameters.requireNonNull(permission, "permission");
+            this.hash = 31 * (userId == null ? 0 : userId.hashCode()) + System.identityHashCode(permission);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return permission == key.permission && (userId == null ? key.userId == null : userId.equals(key.userId));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Decision {
+        private final boolean decision;
+        private final long created;
+
+        private Decision(boolean decision, long created) {
+            this.decision = decision;
+            this.created = created;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Key, Decision> {
+        private final int maximumSize;
+
+        private Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Decision> eldest) {
+            return size() > maximumSize;
+        }
+    }
+}
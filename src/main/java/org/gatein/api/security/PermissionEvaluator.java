@@ -0,0 +1,224 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.security;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gatein.api.internal.Parameters;
+
+/**
+ * Evaluates permissions against the memberships of a user. Permissions are compiled once into bit sets over the groups
+ * and memberships known to the evaluator, and the memberships of a user are captured in a {@link MembershipSnapshot}
+ * using the same bit indexes. A permission check is then a couple of bit set intersections, independent of the number of
+ * memberships involved.
+ * <p>
+ * The compiled form of a {@link Permission} is cached on the permission itself, so repeatedly checking the same
+ * permission does not compile it again. Evaluators are thread-safe.
+ * </p>
+ */
+public class PermissionEvaluator {
+    private final ConcurrentMap<Group, Integer> groupIndexes = new ConcurrentHashMap<Group, Integer>();
+    private final ConcurrentMap<Membership, Integer> membershipIndexes = new ConcurrentHashMap<Membership, Integer>();
+    private final AtomicInteger nextGroupIndex = new AtomicInteger();
+    private final AtomicInteger nextMembershipIndex = new AtomicInteger();
+
+    /**
+     * Compiles the specified permission for this evaluator, or returns the previously compiled permission.
+     *
+     * @param permission the permission
+     * @return the compiled permission
+     */
+    public CompiledPermission compile(Permission permission) {
+        Parameters.requireNonNull(permission, "permission");
+
+        CompiledPermission compiled = permission.compiled;
+        if (compiled == null || compiled.evaluator != this) {
+            compiled = new CompiledPermission(this, permission);
+            permission.compiled = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Creates a snapshot of the memberships of the specified user.
+     *
+     * @param user the user
+     * @param memberships the memberships of the user in groups
+     * @return the snapshot
+     * @throws IllegalArgumentException if user or memberships is null, or a membership has no group
+     */
+    public MembershipSnapshot snapshot(User user, Iterable<Membership> memberships) throws IllegalArgumentException {
+        Parameters.requireNonNull(user, "user");
+        Parameters.requireNonNull(memberships, "memberships");
+
+        MembershipSnapshot snapshot = new MembershipSnapshot(this, user.getId(), new BitSet(), new BitSet());
+        for (Membership membership : memberships) {
+            snapshot.set(membership);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns true if the user of the snapshot has the specified permission
+     *
+     * @param snapshot the memberships of the user
+     * @param permission the permission
+     * @return true if the user has permission
+     */
+    public boolean hasPermission(MembershipSnapshot snapshot, Permission permission) {
+        Parameters.requireNonNull(snapshot, "snapshot");
+
+        return compile(permission).matches(snapshot);
+    }
+
+    private int groupIndex(Group group) {
+        return index(groupIndexes, group, nextGroupIndex);
+    }
+
+    private int membershipIndex(Membership membership) {
+        return index(membershipIndexes, membership, nextMembershipIndex);
+    }
+
+    private static <K> int index(ConcurrentMap<K, Integer> indexes, K key, AtomicInteger next) {
+        Integer index = indexes.get(key);
+        if (index == null) {
+            Integer newIndex = next.getAndIncrement();
+            index = indexes.putIfAbsent(key, newIndex);
+            if (index == null) {
+                index = newIndex;
+            }
+        }
+        return index;
+    }
+
+    private static void requireSameEvaluator(PermissionEvaluator expected, PermissionEvaluator actual) {
+        if (expected != actual)
+            throw new IllegalArgumentException("Permission and membership snapshot belong to different evaluators");
+    }
+
+    /**
+     * A permission compiled by a {@link PermissionEvaluator}
+     */
+    public static final class CompiledPermission {
+        private final PermissionEvaluator evaluator;
+        private final boolean everyone;
+        private final String[] users;
+        private final BitSet anyGroups;
+        private final BitSet memberships;
+
+        private CompiledPermission(PermissionEvaluator evaluator, Permission permission) {
+            this.evaluator = evaluator;
+            this.everyone = permission.isAccessibleToEveryone();
+            this.anyGroups = new BitSet();
+            this.memberships = new BitSet();
+
+            List<String> users = new ArrayList<String>(0);
+            for (Membership membership : permission.getMemberships()) {
+                if (membership.getGroup() == null) {
+                    users.add(membership.getMembershipType());
+                } else if (Membership.ANY.equals(membership.getMembershipType())) {
+                    anyGroups.set(evaluator.groupIndex(membership.getGroup()));
+                } else {
+                    memberships.set(evaluator.membershipIndex(membership));
+                }
+            }
+            this.users = users.toArray(new String[users.size()]);
+        }
+
+        /**
+         * Returns true if the user of the snapshot has this permission
+         *
+         * @param snapshot the memberships of the user
+         * @return true if the user has permission
+         * @throws IllegalArgumentException if the snapshot was created by another evaluator
+         */
+        public boolean matches(MembershipSnapshot snapshot) throws IllegalArgumentException {
+            requireSameEvaluator(evaluator, snapshot.evaluator);
+
+            if (everyone)
+                return true;
+            if (snapshot.userId == null)
+                return false;
+
+            for (String user : users) {
+                if (user.equals(snapshot.userId))
+                    return true;
+            }
+            return anyGroups.intersects(snapshot.groups) || memberships.intersects(snapshot.memberships);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the memberships of a user, created by a {@link PermissionEvaluator}
+     */
+    public static final class MembershipSnapshot {
+        private final PermissionEvaluator evaluator;
+        private final String userId;
+        private final BitSet groups;
+        private final BitSet memberships;
+
+        private MembershipSnapshot(PermissionEvaluator evaluator, String userId, BitSet groups, BitSet memberships) {
+            this.evaluator = evaluator;
+            this.userId = userId;
+            this.groups = groups;
+            this.memberships = memberships;
+        }
+
+        /**
+         * Returns a new snapshot which also includes the specified membership
+         *
+         * @param membership the membership in a group
+         * @return the new snapshot
+         * @throws IllegalArgumentException if membership is null or has no group
+         */
+        public MembershipSnapshot with(Membership membership) throws IllegalArgumentException {
+            MembershipSnapshot snapshot = new MembershipSnapshot(evaluator, userId, (BitSet) groups.clone(),
+                    (BitSet) memberships.clone());
+            snapshot.set(membership);
+            return snapshot;
+        }
+
+        /**
+         * Returns true if the user of this snapshot has the specified permission
+         *
+         * @param permission the permission
+         * @return true if the user has permission
+         */
+        public boolean hasPermission(Permission permission) {
+            return evaluator.compile(permission).matches(this);
+        }
+
+        private void set(Membership membership) {
+            Parameters.requireNonNull(membership, "membership");
+            Parameters.requireNonNull(membership.getGroup(), "membership.group");
+
+            groups.set(evaluator.groupIndex(membership.getGroup()));
+            memberships.set(evaluator.membershipIndex(membership));
+        }
+    }
+}
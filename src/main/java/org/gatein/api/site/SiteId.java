@@ -24,6 +24,8 @@ package org.gatein.api.site;
 
 import org.gatein.api.security.Group;
 import org.gatein.api.security.User;
+import org.gatein.api.internal.IdCodec;
+import org.gatein.api.internal.Interner;
 import org.gatein.api.internal.Parameters;
 import org.gatein.api.page.PageId;
 
@@ -31,8 +33,6 @@ import java.io.Serializable;
 import java.util.Formattable;
 import java.util.FormattableFlags;
 import java.util.Formatter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * The id of site
@@ -40,9 +40,57 @@ import java.util.regex.Pattern;
  * @author <a href="mailto:nscavell@redhat.com">Nick Scavelli</a>
  */
 public class SiteId implements Formattable, Serializable {
+    private static final Interner<SiteId> INTERNER = new Interner<SiteId>();
+
+    /**
+     * Returns the canonical site id for a site with the specific name
+     *
+     * @param name the name
+     * @return the canonical site id
+     */
+    public static SiteId of(String name) {
+        return of(SiteType.SITE, name);
+    }
+
+    /**
+     * Returns the canonical site id for a group space (site associated with a group)
+     *
+     * @param group the group
+     * @return the canonical site id
+     */
+    public static SiteId of(Group group) {
+        return of(SiteType.SPACE, group.getId());
+    }
+
+    /**
+     * Returns the canonical site id for a users dashboard (site associated with a user)
+     *
+     * @param user the user
+     * @return the canonical site id
+     */
+    public static SiteId of(User user) {
+        return of(SiteType.DASHBOARD, user.getId());
+    }
+
+    /**
+     * Returns the canonical site id for a site with the specified type and name. Canonical ids are shared, so equal
+     * ids obtained from this method are the same instance.
+     *
+     * @param type the type
+     * @param name the name
+     * @return the canonical site id
+     */
+    public static SiteId of(SiteType type, String name) {
+        return INTERNER.intern(new SiteId(type, name));
+    }
+
     private final SiteType type;
     private final String name;
 
+    // Lazily computed string forms, see IdCodec
+    private transient String string;
+    private transient String urlSafeString;
+
     /**
      * Creates a new site id for a site with the specific name
      * 
@@ -130,59 +178,27 @@ public class SiteId implements Formattable, Serializable {
 
     @Override
     public String toString() {
-        return String.format("Site.Id[%s]", this);
+        String s = string;
+        if (s == null) {
+            string = s = IdCodec.siteIdToString(type, name);
+        }
+        return s;
     }
 
     @Override
     public void formatTo(Formatter formatter, int flags, int width, int precision) {
         if ((flags & FormattableFlags.ALTERNATE) == FormattableFlags.ALTERNATE) {
-            formatter.format("%s.%s", type.getName(), name.replaceAll("/", "~"));
+            String s = urlSafeString;
+            if (s == null) {
+                urlSafeString = s = IdCodec.siteIdToUrlSafeString(type, name);
+            }
+            formatter.format("%s", s);
         } else {
-            formatter.format("type=%s, name=%s", type.getName(), name);
+            formatter.format("%s", IdCodec.siteIdToFormattedString(type, name));
         }
     }
 
-    private static final String NAME_REGEX = "[A-Za-z0-9-_/~]";
-    private static final String TYPE_REGEX = "\\w{4,9}";
-    private static final Pattern PATTERN1 = Pattern.compile("type=(" + TYPE_REGEX + "), name=(" + NAME_REGEX + "*)");
-    private static final Pattern PATTERN2 = Pattern.compile("(" + TYPE_REGEX + ")\\.(" + NAME_REGEX + "*)");
-
     public static SiteId fromString(String idAsString) {
-        Parameters.requireNonNull(idAsString, "idAsString");
-
-        int len = idAsString.length();
-        if (idAsString.startsWith("Site.Id[type=")) // Handle the toString()
-        {
-            int begin = idAsString.indexOf("type=") + 5;
-            int end = idAsString.indexOf(",", begin);
-            String type = idAsString.substring(begin, end);
-
-            begin = idAsString.indexOf("name=") + 5;
-            end = len - 1;
-            String name = idAsString.substring(begin, end);
-
-            return new SiteId(SiteType.forName(type), name);
-        } else // Handle both %s and %#s formats
-        {
-            // Match two patterns (easier then making one complicated regex)
-            Matcher matcher = PATTERN1.matcher(idAsString);
-            boolean matches = matcher.matches();
-            if (!matches) {
-                matcher = PATTERN2.matcher(idAsString);
-                matches = matcher.matches();
-            }
-
-            // Parse it
-            if (matches) {
-                String type = matcher.group(1);
-                String name = matcher.group(2);
-                if (name.contains("~")) {
-                    name = name.replaceAll("~", "/");
-                }
-                return new SiteId(SiteType.forName(type), name);
-            }
-        }
-
-        throw new IllegalArgumentException("Unknown syntax for id string " + idAsString);
+        return IdCodec.decodeSiteId(idAsString);
     }
 }
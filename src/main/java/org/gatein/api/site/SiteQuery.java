@@ -23,11 +23,21 @@
 package org.gatein.api.site;
 
 import org.gatein.api.common.Filter;
+import org.gatein.api.common.KeysetPagination;
 import org.gatein.api.common.Pagination;
+import org.gatein.api.common.Predicate;
+import org.gatein.api.common.Projection;
+import org.gatein.api.common.Property;
 import org.gatein.api.common.Sorting;
 import org.gatein.api.internal.Parameters;
+import org.gatein.api.security.Membership;
+import org.gatein.api.security.Permission;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * An immutable SiteQuery object that can be used to query sites. This object is created by using the builder
@@ -36,10 +46,74 @@ import java.util.EnumSet;
  * @author <a href="mailto:nscavell@redhat.com">Nick Scavelli</a>
  */
 public class SiteQuery {
+    /**
+     * The name of a site, for use in predicates and sorting
+     */
+    public static final Property<Site> NAME = new Property<Site>("name") {
+        @Override
+        public Object getValue(Site site) {
+            return site.getName();
+        }
+    };
+
+    /**
+     * The {@link SiteType} of a site, for use in predicates and sorting
+     */
+    public static final Property<Site> TYPE = new Property<Site>("type") {
+        @Override
+        public Object getValue(Site site) {
+            return site.getType();
+        }
+    };
+
+    /**
+     * The display name of a site, for use in predicates and sorting
+     */
+    public static final Property<Site> DISPLAY_NAME = new Property<Site>("displayName") {
+        @Override
+        public Object getValue(Site site) {
+            return site.getDisplayName();
+        }
+    };
+
+    /**
+     * The memberships of the access permission of a site, for use in predicates
+     */
+    public static final Property<Site> ACCESS_PERMISSION = new Property<Site>("accessPermission") {
+        @Override
+        public Object getValue(Site site) {
+            return memberships(site.getAccessPermission());
+        }
+    };
+
+    /**
+     * Returns the attribute of a site with the specified name, for use in predicates
+     *
+     * @param name the name of the attribute
+     * @return the property
+     */
+    public static Property<Site> attribute(final String name) {
+        Parameters.requireNonNull(name, "name");
+
+        return new Property<Site>("attribute:" + name) {
+            @Override
+            public Object getValue(Site site) {
+                return site.getAttributes().get(name);
+            }
+        };
+    }
+
+    private static Set<Membership> memberships(Permission permission) {
+        return (permission == null) ? null : permission.getMemberships();
+    }
+
     private final EnumSet<SiteType> siteTypes;
     private final boolean includeEmptySites;
+    private final List<Predicate<Site>> predicates;
     private final Filter<Site> filter;
+    private final Projection projection;
     private final Pagination pagination;
+    private final KeysetPagination<SiteId> keysetPagination;
     private final Sorting<Site> sorting;
 
     /**
@@ -50,13 +124,17 @@ public class SiteQuery {
      * @param includeEmptySites flag if true will include sites that are empty (i.e. no navigation associated with it).
      * @see SiteQuery.Builder
      */
-    private SiteQuery(EnumSet<SiteType> siteTypes, boolean includeEmptySites, Filter<Site> filter, Pagination pagination,
-            Sorting<Site> sorting) {
+    private SiteQuery(EnumSet<SiteType> siteTypes, boolean includeEmptySites, List<Predicate<Site>> predicates,
+            Filter<Site> filter, Pagination pagination, KeysetPagination<SiteId> keysetPagination, Sorting<Site> sorting,
+            Projection projection) {
         this.siteTypes = siteTypes;
         this.includeEmptySites = includeEmptySites;
+        this.predicates = predicates;
         this.filter = filter;
         this.pagination = pagination;
+        this.keysetPagination = keysetPagination;
         this.sorting = sorting;
+        this.projection = projection;
     }
 
     /**
@@ -80,6 +158,30 @@ public class SiteQuery {
         return includeEmptySites;
     }
 
+    /**
+     * The predicates of this query, which all have to match. Unlike the filter, predicates can be translated into index
+     * lookups by implementations.
+     *
+     * @return the predicates, which is empty if the query has no predicates
+     */
+    public List<Predicate<Site>> getPredicates() {
+        return predicates;
+    }
+
+    /**
+     * The projection used by summary queries, such as {@link org.gatein.api.Portal#findSiteSummaries(SiteQuery)}.
+     *
+     * @return the projection, which is {@link Projection#ID_AND_DISPLAY_NAME} unless set otherwise
+     */
+    public Projection getProjection() {
+        return projection;
+    }
+
+    /**
+     * The filter of this query, which is applied after the predicates.
+     *
+     * @return the filter, which can be null
+     */
     public Filter<Site> getFilter() {
         return filter;
     }
@@ -92,6 +194,16 @@ public class SiteQuery {
         return pagination;
     }
 
+    /**
+     * The keyset pagination of this query, where the sort key is the id of the last site seen. Keyset pagination follows the
+     * order of the sorting of the query, which must not use a comparator or sort by a property other than {@link #TYPE}.
+     *
+     * @return the keyset pagination, or null if the query uses offset pagination
+     */
+    public KeysetPagination<SiteId> getKeysetPagination() {
+        return keysetPagination;
+    }
+
     /**
      * Convenience method for creating a new SiteQuery with pagination set to the next page represented by by
      * {@link org.gatein.api.common.Pagination#getNext()}
@@ -112,6 +224,17 @@ public class SiteQuery {
         return new Builder().from(this).withPreviousPage().build();
     }
 
+    /**
+     * Convenience method for creating a new SiteQuery with keyset pagination set to the page after the specified site,
+     * keeping the limit of the current pagination.
+     *
+     * @param lastSiteId the id of the last site of the current page
+     * @return a new SiteQuery with keyset pagination set to the next page.
+     */
+    public SiteQuery nextPage(SiteId lastSiteId) {
+        return new Builder().from(this).withNextPage(lastSiteId).build();
+    }
+
     /**
      * The builder class responsible for building SiteQuery objects.
      *
@@ -134,8 +257,11 @@ public class SiteQuery {
 
         private EnumSet<SiteType> siteTypes;
         private boolean emptySites;
+        private List<Predicate<Site>> predicates = new ArrayList<Predicate<Site>>();
+        private Projection projection = Projection.ID_AND_DISPLAY_NAME;
         private Filter<Site> filter;
         private Pagination pagination;
+        private KeysetPagination<SiteId> keysetPagination;
         private Sorting<Site> sorting;
 
         public Builder() {
@@ -205,6 +331,34 @@ public class SiteQuery {
          */
         public Builder withPagination(Pagination pagination) {
             this.pagination = pagination;
+            if (pagination != null) {
+                this.keysetPagination = null;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the keyset pagination object of this builder to start after the specified site id with the specified limit.
+         *
+         * @param after the id of the last site seen, or null for the first page
+         * @param limit the limit of the pagination
+         * @return this builder
+         */
+        public Builder withKeysetPagination(SiteId after, int limit) {
+            return withKeysetPagination(new KeysetPagination<SiteId>(after, limit));
+        }
+
+        /**
+         * Sets the keyset pagination object of this builder, which replaces any offset pagination.
+         *
+         * @param keysetPagination the keyset pagination object
+         * @return this builder
+         */
+        public Builder withKeysetPagination(KeysetPagination<SiteId> keysetPagination) {
+            this.keysetPagination = keysetPagination;
+            if (keysetPagination != null) {
+                this.pagination = null;
+            }
             return this;
         }
 
@@ -221,6 +375,22 @@ public class SiteQuery {
             return this;
         }
 
+        /**
+         * Sets the keyset pagination of this builder to the page after the specified site id, keeping the limit of the
+         * current keyset or offset pagination.
+         *
+         * @param lastSiteId the id of the last site of the current page
+         * @return this builder
+         */
+        public Builder withNextPage(SiteId lastSiteId) {
+            if (keysetPagination != null) {
+                return withKeysetPagination(keysetPagination.getNext(lastSiteId));
+            } else {
+                int limit = (pagination == null) ? DEFAULT_LIMIT : pagination.getLimit();
+                return withKeysetPagination(lastSiteId, limit);
+            }
+        }
+
         /**
          * Sets the pagination of this builder to <code>pagination.getPrevious()</code> if it's not null.
          *
@@ -234,6 +404,28 @@ public class SiteQuery {
             return this;
         }
 
+        /**
+         * Sets the projection of this builder, which determines the properties included in summaries.
+         *
+         * @param projection the projection
+         * @return this builder
+         */
+        public Builder withProjection(Projection projection) {
+            this.projection = Parameters.requireNonNull(projection, "projection");
+            return this;
+        }
+
+        /**
+         * Adds a predicate to this builder. A site has to match all predicates to be returned.
+         *
+         * @param predicate the predicate
+         * @return this builder
+         */
+        public Builder where(Predicate<Site> predicate) {
+            predicates.add(Parameters.requireNonNull(predicate, "predicate"));
+            return this;
+        }
+
         /**
          * Sets the filter for this builder
          *
@@ -256,6 +448,19 @@ public class SiteQuery {
             return this;
         }
 
+        /**
+         * Sets the sorting object of this builder to sort by the specified property, such as {@link SiteQuery#NAME} or
+         * {@link SiteQuery#DISPLAY_NAME}, in the specified order
+         *
+         * @param property the property to sort by
+         * @param order the order to sort
+         * @return this builder
+         */
+        public Builder withSorting(Property<Site> property, Sorting.Order order) {
+            this.sorting = new Sorting<Site>(Parameters.requireNonNull(property, "property"), order);
+            return this;
+        }
+
         /**
          * Sets the order of the sorting object of this builder to <code>Sorting.Order.ascending</code>
          *
@@ -285,7 +490,9 @@ public class SiteQuery {
             if (siteTypes == null || siteTypes.isEmpty())
                 siteTypes = EnumSet.of(SiteType.SITE);
 
-            return new SiteQuery(siteTypes, emptySites, filter, pagination, sorting);
+            List<Predicate<Site>> predicates = this.predicates.isEmpty() ? Collections.<Predicate<Site>> emptyList()
+                    : Collections.unmodifiableList(new ArrayList<Predicate<Site>>(this.predicates));
+            return new SiteQuery(siteTypes, emptySites, predicates, filter, pagination, keysetPagination, sorting, projection);
         }
 
         /**
@@ -295,8 +502,12 @@ public class SiteQuery {
          * @return a new builder
          */
         public Builder from(SiteQuery query) {
-            return new Builder().includeEmptySites(query.isIncludeEmptySites()).withSiteTypes(query.getSiteTypes())
-                    .withFilter(query.getFilter()).withPagination(query.getPagination()).withSorting(query.getSorting());
+            Builder builder = new Builder();
+            builder.predicates.addAll(query.getPredicates());
+            return builder.includeEmptySites(query.isIncludeEmptySites()).withSiteTypes(query.getSiteTypes())
+                    .withFilter(query.getFilter()).withPagination(query.getPagination())
+                    .withKeysetPagination(query.getKeysetPagination()).withSorting(query.getSorting())
+                    .withProjection(query.getProjection());
         }
     }
 }
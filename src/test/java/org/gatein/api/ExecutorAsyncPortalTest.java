@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.gatein.api.common.AsyncResult;
+import org.gatein.api.common.Callback;
+import org.gatein.api.memory.InMemoryPortal;
+import org.gatein.api.navigation.AsyncNavigation;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.NodePath;
+import org.gatein.api.navigation.Nodes;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutorAsyncPortalTest {
+    private ExecutorService executor;
+    private AsyncPortal portal;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(2);
+        portal = new ExecutorAsyncPortal(new InMemoryPortal(), executor);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void site() throws Exception {
+        SiteId siteId = new SiteId("classic");
+        assertNull(portal.getSite(siteId).get());
+
+        portal.saveSite(portal.createSite(siteId).get()).get();
+        assertTrue(portal.siteExists(siteId).get());
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Site> site = new AtomicReference<Site>();
+        portal.getSite(siteId).onComplete(new Callback<Site>() {
+            @Override
+            public void onSuccess(Site result) {
+                site.set(result);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(siteId, site.get().getId());
+    }
+
+    @Test
+    public void navigation() throws Exception {
+        SiteId siteId = new SiteId("classic");
+        portal.saveSite(portal.createSite(siteId).get()).get();
+
+        AsyncNavigation navigation = portal.getNavigation(siteId).get();
+        assertEquals(siteId, navigation.getSiteId());
+
+        Node root = navigation.getRootNode(Nodes.visitChildren()).get();
+        root.addChild("home");
+        navigation.saveNode(root).get();
+        assertNotNull(navigation.getNode(NodePath.path("home")).get());
+    }
+
+    @Test
+    public void failure() throws Exception {
+        AsyncResult<Site> result = portal.createSite(null);
+        try {
+            result.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        result.onComplete(new Callback<Site>() {
+            @Override
+            public void onSuccess(Site site) {
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                failure.set(e);
+            }
+        });
+        assertTrue(failure.get() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void failingCallback() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        AsyncPortal deferred = new ExecutorAsyncPortal(new InMemoryPortal(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        final AtomicInteger completed = new AtomicInteger();
+        AsyncResult<Boolean> result = deferred.siteExists(new SiteId("classic"));
+        for (int i = 0; i < 2; i++) {
+            result.onComplete(new Callback<Boolean>() {
+                @Override
+                public void onSuccess(Boolean exists) {
+                    completed.incrementAndGet();
+                    throw new IllegalStateException("callback failure");
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                }
+            });
+        }
+        tasks.get(0).run();
+
+        assertEquals(2, completed.get());
+        assertEquals(Boolean.FALSE, result.get());
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import org.gatein.api.common.URIResolver;
+import org.gatein.api.memory.InMemoryPortal;
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.NodePath;
+import org.gatein.api.navigation.Nodes;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.security.User;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PortalRequestTest {
+    private InMemoryPortal portal;
+    private SiteId siteId;
+
+    @Before
+    public void before() {
+        portal = new InMemoryPortal();
+        siteId = new SiteId("classic");
+        portal.saveSite(portal.createSite(siteId));
+        PageId pageId = new PageId(siteId, "homepage");
+        portal.savePage(portal.createPage(pageId));
+
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("home").setPageId(pageId);
+        navigation.saveNode(root);
+    }
+
+    @Test
+    public void lazy() {
+        PortalRequest request = new TestPortalRequest(portal, siteId, NodePath.path("home"));
+        assertEquals(siteId, request.getSite().getId());
+        assertSame(request.getNavigation(), request.getNavigation());
+        assertEquals("homepage", request.getPage().getName());
+    }
+
+    @Test
+    public void prefetch() {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        TestPortalRequest request = new TestPortalRequest(portal, siteId, NodePath.path("home"));
+        request.prefetch(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        assertEquals(2, tasks.size());
+
+        // Loads that were not started by the executor run in the calling thread
+        assertEquals("homepage", request.getPage().getName());
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        assertEquals(siteId, request.getSite().getId());
+        assertEquals(siteId, request.getNavigation().getSiteId());
+    }
+
+    @Test
+    public void prefetch_NodeNotFound() {
+        TestPortalRequest request = new TestPortalRequest(portal, siteId, NodePath.path("missing"));
+        request.prefetch(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        assertNull(request.getPage());
+    }
+
+    @Test
+    public void scopedPortal() {
+        TestPortalRequest request = new TestPortalRequest(portal, siteId, NodePath.path("home"));
+        PortalRequest.setInstance(request);
+        Portal scoped = PortalRequest.getInstance().getScopedPortal();
+        assertSame(scoped, request.getScopedPortal());
+
+        Site site = scoped.getSite(siteId);
+        assertSame(site, scoped.getSite(siteId));
+        assertSame(site, scoped.getSites(Arrays.asList(siteId, new SiteId("missing"))).get(siteId));
+        assertSame(site, request.getSite());
+        Page page = scoped.getPage(new PageId(siteId, "homepage"));
+        assertSame(page, request.getPage());
+
+        Site updated = portal.getSite(siteId);
+        updated.setDisplayName("Classic");
+        portal.saveSite(updated);
+        assertNull(scoped.getSite(siteId).getDisplayName());
+
+        PortalRequest.setInstance(null);
+        assertNull(PortalRequest.getInstance());
+        assertEquals("Classic", scoped.getSite(siteId).getDisplayName());
+
+        scoped.removeSite(siteId);
+        assertNull(scoped.getSite(siteId));
+        assertFalse(scoped.pageExists(new PageId(siteId, "homepage")));
+    }
+
+    @Test
+    public void context() throws Exception {
+        final TestPortalRequest request = new TestPortalRequest(portal, siteId, NodePath.path("home"));
+        PortalRequest.setInstance(request);
+        Site site = request.getScopedPortal().getSite(siteId);
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        try {
+            Executor executor = PortalRequestContext.propagating(workers);
+            FutureTask<Site> task = new FutureTask<Site>(new Callable<Site>() {
+                @Override
+                public Site call() {
+                    return PortalRequest.getInstance().getScopedPortal().getSite(siteId);
+                }
+            });
+            executor.execute(task);
+            assertSame(site, task.get());
+
+            // The worker does not keep the request once the task is done
+            assertNull(workers.submit(new Callable<PortalRequest>() {
+                @Override
+                public PortalRequest call() {
+                    return PortalRequest.getInstance();
+                }
+            }).get());
+
+            Callable<PortalRequest> current = PortalRequestContext.capture().wrap(new Callable<PortalRequest>() {
+                @Override
+                public PortalRequest call() {
+                    return PortalRequest.getInstance();
+                }
+            });
+            PortalRequest.setInstance(null);
+            assertSame(request, workers.submit(current).get());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static class TestPortalRequest extends PortalRequest {
+        private final Portal portal;
+        private final SiteId siteId;
+        private final NodePath nodePath;
+
+        TestPortalRequest(Portal portal, SiteId siteId, NodePath nodePath) {
+            this.portal = portal;
+            this.siteId = siteId;
+            this.nodePath = nodePath;
+        }
+
+        @Override
+        public User getUser() {
+            return User.anonymous();
+        }
+
+        @Override
+        public SiteId getSiteId() {
+            return siteId;
+        }
+
+        @Override
+        public NodePath getNodePath() {
+            return nodePath;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.ENGLISH;
+        }
+
+        @Override
+        public Portal getPortal() {
+            return portal;
+        }
+
+        @Override
+        public URIResolver getURIResolver() {
+            return null;
+        }
+    }
+}
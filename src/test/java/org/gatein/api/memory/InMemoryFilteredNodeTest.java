@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.Nodes;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.security.Permission;
+import org.gatein.api.security.User;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryFilteredNodeTest {
+    private InMemoryPortal portal;
+
+    @Before
+    public void before() {
+        portal = new InMemoryPortal();
+    }
+
+    @Test
+    public void filter() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        PageId pageId = siteId.page("admin");
+        Page page = portal.createPage(pageId);
+        page.setAccessPermission(Permission.any("platform", "administrators"));
+        portal.savePage(page);
+
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("home");
+        root.addChild("hidden").setVisibility(false);
+        root.addChild("admin").setPageId(pageId);
+        navigation.saveNode(root);
+
+        root = navigation.getRootNode(Nodes.visitChildren());
+        assertEquals(2, root.filter().showVisible().getChildCount());
+        assertEquals(1, root.filter().showVisible().showHasAccess(User.anonymous()).getChildCount());
+        assertEquals(0, root.filter().showVisible().indexOf("home"));
+        assertNull(root.filter().showVisible().getChild("hidden"));
+    }
+
+    @Test
+    public void filter_RemovedPage() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        PageId pageId = siteId.page("admin");
+        Page page = portal.createPage(pageId);
+        page.setAccessPermission(Permission.any("platform", "administrators"));
+        page.setEditPermission(Permission.any("platform", "administrators"));
+        portal.savePage(page);
+
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("admin").setPageId(pageId);
+        navigation.saveNode(root);
+
+        root = navigation.getRootNode(Nodes.visitChildren());
+        assertEquals(0, root.filter().showHasAccess(User.anonymous()).getChildCount());
+
+        portal.removePage(pageId);
+        assertEquals(1, root.filter().showHasAccess(User.anonymous()).getChildCount());
+
+        Site site = portal.getSite(siteId);
+        site.setEditPermission(Permission.everyone());
+        portal.saveSite(site);
+        assertEquals(1, root.filter().showHasEdit(User.anonymous()).getChildCount());
+    }
+
+    private SiteId createSite(SiteId siteId) {
+        portal.saveSite(portal.createSite(siteId));
+        return siteId;
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.EnumSet;
+
+import org.gatein.api.EntityAlreadyExistsException;
+import org.gatein.api.common.i18n.LocalizedString;
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.NodePath;
+import org.gatein.api.navigation.Nodes;
+import org.gatein.api.site.SiteId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryNavigationConcurrencyTest {
+    private InMemoryPortal portal;
+
+    @Before
+    public void before() {
+        portal = new InMemoryPortal();
+    }
+
+    @Test
+    public void navigation_ReadDisplayNames() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("home").setDisplayName("Home");
+        navigation.saveNode(root);
+
+        Node first = navigation.getRootNode(Nodes.visitChildren());
+        Node second = navigation.getRootNode(Nodes.visitChildren());
+        first.getChild("home").setIconName("house");
+        navigation.saveNode(first);
+
+        // Reading the display names is not a change, so saving does not write back the stale icon
+        assertEquals("Home", second.getChild("home").getDisplayNames().getValue());
+        navigation.saveNode(second);
+        assertEquals("house", navigation.getNode(NodePath.path("home")).getIconName());
+
+        LocalizedString displayNames = second.getChild("home").getDisplayNames();
+        displayNames.setValue("Welcome");
+        assertEquals("Welcome", second.getChild("home").getDisplayName());
+        navigation.saveNode(second);
+        assertEquals("Welcome", navigation.getNode(NodePath.path("home")).getDisplayName());
+    }
+
+    @Test
+    public void navigation_SaveConcurrentEdits() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("c").setDisplayName("C");
+        navigation.saveNode(root);
+
+        Node first = navigation.getRootNode(Nodes.visitChildren());
+        Node second = navigation.getRootNode(Nodes.visitChildren());
+        first.getChild("c").setIconName("icon");
+        navigation.saveNode(first);
+        second.getChild("c").setVisibility(false);
+        second.getChild("c").setPageId(siteId.page("home"));
+        navigation.saveNode(second);
+
+        // Each tree writes only the fields it edited
+        Node saved = navigation.getNode(NodePath.path("c"));
+        assertEquals("icon", saved.getIconName());
+        assertFalse(saved.isVisible());
+        assertEquals(siteId.page("home"), saved.getPageId());
+        assertEquals("C", saved.getDisplayName());
+
+        first = navigation.getRootNode(Nodes.visitChildren());
+        second = navigation.getRootNode(Nodes.visitChildren());
+        first.getChild("c").setName("d");
+        navigation.saveNode(first);
+        second.getChild("c").setDisplayName("Changed");
+        navigation.saveNode(second);
+
+        saved = navigation.getNode(NodePath.path("d"));
+        assertEquals("Changed", saved.getDisplayName());
+        assertEquals("icon", saved.getIconName());
+        assertNull(navigation.getNode(NodePath.path("c")));
+    }
+
+    @Test
+    public void navigation_Refresh() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("home");
+        root.addChild("about").addChild("contact");
+        navigation.saveNode(root);
+
+        Node editor = navigation.getRootNode(Nodes.visitAll());
+        editor.getChild("home").setIconName("house");
+
+        Node other = navigation.getRootNode(Nodes.visitAll());
+        other.getNode("about", "contact").setName("team");
+        navigation.saveNode(other);
+
+        navigation.refreshNode(editor);
+        assertEquals("house", editor.getChild("home").getIconName());
+        assertNotNull(editor.getNode("about", "team"));
+        assertNull(editor.getNode("about", "contact"));
+
+        Node partial = navigation.getRootNode(Nodes.visitChildren());
+        navigation.refreshNode(partial);
+        assertFalse(partial.getChild("about").isChildrenLoaded());
+        navigation.refreshNode(partial, Nodes.visitAll());
+        assertTrue(partial.getChild("about").isChildrenLoaded());
+    }
+
+    @Test
+    public void navigation_RefreshLocalMove() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("p1").addChild("a");
+        root.addChild("p2");
+        root.addChild("p3");
+        navigation.saveNode(root);
+
+        // The parent the node was moved from changed in storage, so the node is where it is stored
+        Node editor = navigation.getRootNode(Nodes.visitAll());
+        editor.getNode("p1", "a").moveTo(editor.getChild("p2"));
+        Node other = navigation.getRootNode(Nodes.visitAll());
+        other.getChild("p1").setIconName("icon");
+        navigation.saveNode(other);
+
+        navigation.refreshNode(editor);
+        assertEquals(1, editor.getChild("p1").getChildCount());
+        assertNotNull(editor.getNode("p1", "a"));
+        assertEquals(0, editor.getChild("p2").getChildCount());
+        navigation.saveNode(editor);
+        Node saved = navigation.getRootNode(Nodes.visitAll());
+        assertNotNull(saved.getNode("p1", "a"));
+        assertEquals(0, saved.getChild("p2").getChildCount());
+
+        // The parent the node was moved to changed in storage, so the node is put back where it is stored
+        editor = navigation.getRootNode(Nodes.visitAll());
+        editor.getNode("p1", "a").moveTo(editor.getChild("p2"));
+        other = navigation.getRootNode(Nodes.visitAll());
+        other.getChild("p2").setIconName("icon");
+        navigation.saveNode(other);
+
+        navigation.refreshNode(editor);
+        assertNotNull(editor.getNode("p1", "a"));
+        assertEquals(0, editor.getChild("p2").getChildCount());
+
+        // Neither parent changed in storage, so the move is kept
+        editor = navigation.getRootNode(Nodes.visitAll());
+        editor.getNode("p1", "a").moveTo(editor.getChild("p2"));
+        other = navigation.getRootNode(Nodes.visitAll());
+        other.getChild("p3").setIconName("icon");
+        navigation.saveNode(other);
+
+        navigation.refreshNode(editor);
+        assertEquals("icon", editor.getChild("p3").getIconName());
+        assertEquals(0, editor.getChild("p1").getChildCount());
+        assertNotNull(editor.getNode("p2", "a"));
+        navigation.saveNode(editor);
+        saved = navigation.getRootNode(Nodes.visitAll());
+        assertEquals(0, saved.getChild("p1").getChildCount());
+        assertNotNull(saved.getNode("p2", "a"));
+    }
+
+    @Test
+    public void navigation_RefreshLocalRename() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("a");
+        root.addChild("b");
+        navigation.saveNode(root);
+
+        Node editor = navigation.getRootNode(Nodes.visitAll());
+        editor.getChild("a").setName("c");
+        editor.getChild("b").setName("d");
+        Node other = navigation.getRootNode(Nodes.visitAll());
+        other.addChild("c");
+        navigation.saveNode(other);
+
+        // The rename colliding with the stored sibling is discarded, the other one is kept
+        navigation.refreshNode(editor);
+        assertEquals(3, editor.getChildCount());
+        assertNotNull(editor.getChild("a"));
+        assertNotNull(editor.getChild("c"));
+        assertNotNull(editor.getChild("d"));
+        navigation.saveNode(editor);
+
+        Node saved = navigation.getRootNode(Nodes.visitAll());
+        assertEquals(3, saved.getChildCount());
+        assertNotNull(saved.getChild("a"));
+        assertNotNull(saved.getChild("d"));
+    }
+
+    @Test
+    public void navigation_RefreshLocalAncestorChanges() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("a").addChild("b");
+        root.addChild("c");
+        navigation.saveNode(root);
+
+        Node editor = navigation.getRootNode(Nodes.visitAll());
+        editor.getChild("a").setName("a2");
+        editor.getChild("a2").setIconName("icon");
+        editor.addChild(1, "local");
+        editor.getChild("c").setIconName("mine");
+        editor.getChild("c").setPageId(siteId.page("home"));
+        Node other = navigation.getRootNode(Nodes.visitAll());
+        other.getNode("a", "b").addChild("x");
+        other.getChild("c").setIconName("other");
+        navigation.saveNode(other);
+
+        // The ancestors of the concurrent change keep their local edits, while the edit of a field changed in storage is
+        // discarded
+        navigation.refreshNode(editor);
+        assertEquals(3, editor.getChildCount());
+        assertEquals(0, editor.indexOf("a2"));
+        assertEquals(1, editor.indexOf("local"));
+        assertEquals("icon", editor.getChild("a2").getIconName());
+        assertNotNull(editor.getNode("a2", "b", "x"));
+        assertEquals("other", editor.getChild("c").getIconName());
+        assertEquals(siteId.page("home"), editor.getChild("c").getPageId());
+        navigation.saveNode(editor);
+
+        Node saved = navigation.getRootNode(Nodes.visitAll());
+        assertEquals(3, saved.getChildCount());
+        assertNull(saved.getChild("a"));
+        assertEquals("icon", saved.getChild("a2").getIconName());
+        assertNotNull(saved.getNode("a2", "b", "x"));
+        assertEquals(1, saved.indexOf("local"));
+        assertEquals("other", saved.getChild("c").getIconName());
+        assertEquals(siteId.page("home"), saved.getChild("c").getPageId());
+    }
+
+    @Test
+    public void navigation_SaveChanges() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("home");
+        root.addChild("about").addChild("contact");
+        navigation.saveNode(root);
+
+        Node first = navigation.getRootNode(Nodes.visitAll());
+        Node second = navigation.getRootNode(Nodes.visitAll());
+        first.getChild("home").setIconName("house");
+        first.getChild("home").setPageId(siteId.page("home"));
+        InMemoryNode home = InMemoryNode.unwrap(first.getChild("home"));
+        assertEquals(EnumSet.of(NodeChanges.Change.UPDATE, NodeChanges.Change.PAGE), home.getChanges().get(home));
+        navigation.saveNode(first);
+        assertTrue(home.getChanges().isEmpty());
+
+        // Only the changes of the second tree are written, so the changes saved from the first tree are kept
+        second.addChild("news");
+        second.getNode("about", "contact").moveTo(second);
+        navigation.saveNode(second);
+
+        Node saved = navigation.getRootNode(Nodes.visitAll());
+        assertEquals("house", saved.getChild("home").getIconName());
+        assertEquals(siteId.page("home"), saved.getChild("home").getPageId());
+        assertEquals(4, saved.getChildCount());
+        assertEquals(0, saved.getChild("about").getChildCount());
+        assertEquals(3, saved.indexOf("contact"));
+    }
+
+    @Test
+    public void navigation_SaveConcurrentChanges() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("p1").addChild("a");
+        root.addChild("p2");
+        navigation.saveNode(root);
+
+        Node first = navigation.getRootNode(Nodes.visitAll());
+        Node second = navigation.getRootNode(Nodes.visitAll());
+        first.getNode("p1", "a").moveTo(first.getChild("p2"));
+        navigation.saveNode(first);
+
+        // The node moved concurrently is left out of p1 rather than written back
+        second.getChild("p1").addChild("b");
+        navigation.saveNode(second);
+
+        Node saved = navigation.getRootNode(Nodes.visitAll());
+        assertEquals(1, saved.getChild("p1").getChildCount());
+        assertNotNull(saved.getNode("p1", "b"));
+        assertEquals(1, saved.getChild("p2").getChildCount());
+        assertNotNull(saved.getNode("p2", "a"));
+
+        // A node moved by both trees ends up where it was moved last
+        first = navigation.getRootNode(Nodes.visitAll());
+        second = navigation.getRootNode(Nodes.visitAll());
+        first.getNode("p2", "a").moveTo(first);
+        navigation.saveNode(first);
+        second.getNode("p2", "a").moveTo(second.getChild("p1"));
+        navigation.saveNode(second);
+
+        saved = navigation.getRootNode(Nodes.visitAll());
+        assertNull(saved.getChild("a"));
+        assertNotNull(saved.getNode("p1", "a"));
+        second.getNode("p1", "a").moveTo(second.getChild("p2"));
+        navigation.saveNode(second);
+
+        // Children added concurrently are kept when only a descendant changed
+        first = navigation.getRootNode(Nodes.visitAll());
+        second = navigation.getRootNode(Nodes.visitAll());
+        first.getChild("p2").addChild("c");
+        navigation.saveNode(first);
+        second.getNode("p2", "a").setIconName("icon");
+        navigation.saveNode(second);
+
+        saved = navigation.getRootNode(Nodes.visitAll());
+        assertEquals("icon", saved.getNode("p2", "a").getIconName());
+        assertNotNull(saved.getNode("p2", "c"));
+        assertNotNull(second.getNode("p2", "c"));
+
+        first = navigation.getRootNode(Nodes.visitAll());
+        first.getChild("p2").addChild("d");
+        navigation.saveNode(first);
+        second.getNode("p2", "a").setName("d");
+        try {
+            navigation.saveNode(second);
+            fail();
+        } catch (EntityAlreadyExistsException e) {
+        }
+    }
+
+    private SiteId createSite(SiteId siteId) {
+        portal.saveSite(portal.createSite(siteId));
+        return siteId;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.NodePath;
+import org.gatein.api.navigation.Nodes;
+import org.gatein.api.site.SiteId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryNavigationTest {
+    private InMemoryPortal portal;
+
+    @Before
+    public void before() {
+        portal = new InMemoryPortal();
+    }
+
+    @Test
+    public void navigation() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("home").setPageId(siteId.page("home"));
+        root.addChild("about").addChild("contact");
+        navigation.saveNode(root);
+
+        root = navigation.getRootNode(Nodes.visitChildren());
+        assertEquals(2, root.getChildCount());
+        assertFalse(root.getChild("about").isChildrenLoaded());
+        assertEquals(siteId.page("home"), root.getChild("home").getPageId());
+
+        Node contact = navigation.getNode(NodePath.path("about", "contact"));
+        assertNotNull(contact);
+        assertEquals(NodePath.path("about", "contact"), contact.getNodePath());
+        assertNull(navigation.getNode(NodePath.path("about", "missing")));
+
+        root.getChild("home").setName("welcome");
+        navigation.saveNode(root);
+        assertNotNull(navigation.getNode(NodePath.path("welcome")));
+        assertNotNull(navigation.getNode(NodePath.path("about", "contact")));
+
+        assertTrue(navigation.removeNode(NodePath.path("about", "contact")));
+        navigation.refreshNode(root, Nodes.visitAll());
+        assertEquals(0, root.getChild("about").getChildCount());
+    }
+
+    @Test
+    public void navigation_SharedState() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("home").setDisplayName("Home");
+        root.addChild("about").addChild("contact");
+        navigation.saveNode(root);
+
+        NodeData about = portal.getNavigationData(siteId).root.getChild("about");
+        Node home = navigation.getRootNode(Nodes.visitAll()).getChild("home");
+        home.getDisplayNames().setValue("Welcome");
+        assertEquals("Home", navigation.getNode(NodePath.path("home")).getDisplayName());
+
+        home.setIconName("house");
+        navigation.saveNode(home);
+        NodeData stored = portal.getNavigationData(siteId).root;
+        assertEquals("Welcome", stored.getChild("home").displayNames.getValue());
+        assertSame(about, stored.getChild("about"));
+
+        navigation.saveNode(home);
+        assertSame(stored, portal.getNavigationData(siteId).root);
+    }
+
+    @Test
+    public void navigation_LoadOnDemand() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        root.addChild("home").addChild("news");
+        root.addChild("about").addChild("contact").addChild("team");
+        navigation.saveNode(root);
+
+        root = navigation.getRootNode(Nodes.loadOnDemand(Nodes.visitChildren()));
+        Node about = root.getChild("about");
+        assertFalse(about.isChildrenLoaded());
+        assertNotNull(about.getNode("contact", "team"));
+        assertTrue(root.getChild("home").isChildrenLoaded());
+
+        Node contact = navigation.getNode(NodePath.path("about", "contact"), Nodes.loadOnDemand(Nodes.visitNone()));
+        assertFalse(contact.isChildrenLoaded());
+        assertEquals(1, contact.getChildCount());
+
+        try {
+            navigation.getRootNode(Nodes.visitChildren()).getChild("about").getChildCount();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void navigation_ManyChildren() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+        Node root = navigation.getRootNode(Nodes.visitChildren());
+        Node category = root.addChild("category");
+        for (int i = 0; i < 100; i++) {
+            category.addChild("item" + i);
+        }
+        assertEquals(42, category.indexOf("item42"));
+
+        category.getChild("item42").setName("renamed");
+        assertFalse(category.hasChild("item42"));
+        assertEquals(42, category.indexOf("renamed"));
+        assertTrue(category.removeChild("item0"));
+        assertEquals(41, category.indexOf("renamed"));
+        category.addChild(0, "first");
+        category.getChild("item99").moveTo(root);
+        assertNull(category.getChild("item99"));
+        assertNotNull(root.getChild("item99"));
+        navigation.saveNode(root);
+
+        Node saved = navigation.getNode(NodePath.path("category"), Nodes.visitChildren());
+        assertEquals(99, saved.getChildCount());
+        assertEquals(0, saved.indexOf("first"));
+        assertEquals(42, saved.indexOf("renamed"));
+        assertTrue(navigation.removeNode(NodePath.path("category", "renamed")));
+        assertNull(navigation.getNode(NodePath.path("category", "renamed")));
+    }
+
+    @Test
+    public void moveNode() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        Navigation navigation = portal.getNavigation(siteId);
+
+        Node root = navigation.getRootNode(Nodes.visitAll());
+        Node foo = root.addChild("foo");
+        Node bar = root.addChild("bar");
+        foo.moveTo(bar);
+        assertEquals(1, root.getChildCount());
+        assertEquals(NodePath.path("bar", "foo"), foo.getNodePath());
+
+        navigation.saveNode(root);
+        assertNotNull(navigation.getNode(NodePath.path("bar", "foo")));
+    }
+
+    private SiteId createSite(SiteId siteId) {
+        portal.saveSite(portal.createSite(siteId));
+        return siteId;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.gatein.api.common.Cursor;
+import org.gatein.api.common.Filter;
+import org.gatein.api.common.Predicate;
+import org.gatein.api.common.Projection;
+import org.gatein.api.common.Property;
+import org.gatein.api.common.Sorting;
+import org.gatein.api.common.Summary;
+import org.gatein.api.navigation.Navigation;
+import org.gatein.api.navigation.Node;
+import org.gatein.api.navigation.Nodes;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.page.PageQuery;
+import org.gatein.api.security.Group;
+import org.gatein.api.security.Membership;
+import org.gatein.api.security.Permission;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.gatein.api.site.SiteQuery;
+import org.gatein.api.site.SiteType;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryPortalQueryTest {
+    private InMemoryPortal portal;
+
+    @Before
+    public void before() {
+        portal = new InMemoryPortal();
+    }
+
+    @Test
+    public void findSites() {
+        for (String name : new String[] { "c", "a", "b" }) {
+            createSite(new SiteId(name), true);
+        }
+        createSite(new SiteId("empty"), false);
+        createSite(new SiteId(new Group("platform", "users")), true);
+
+        List<Site> sites = portal.findSites(new SiteQuery.Builder().withPagination(0, 2).build());
+        assertEquals(2, sites.size());
+        assertEquals("a", sites.get(0).getName());
+        assertEquals("b", sites.get(1).getName());
+
+        sites = portal.findSites(new SiteQuery.Builder().withPagination(0, 2).build().nextPage());
+        assertEquals(1, sites.size());
+        assertEquals("c", sites.get(0).getName());
+
+        assertEquals(4, portal.findSites(new SiteQuery.Builder().includeEmptySites(true).build()).size());
+        assertEquals(5, portal.findSites(new SiteQuery.Builder().withAllSiteTypes().includeEmptySites(true).build()).size());
+        assertEquals("c", portal.findSites(new SiteQuery.Builder().descending().build()).get(0).getName());
+    }
+
+    @Test
+    public void findSites_SortedByProperty() {
+        String[][] sites = { { "a", "Zulu" }, { "b", null }, { "c", "Alpha" } };
+        for (String[] site : sites) {
+            createSite(new SiteId(site[0]), true);
+            Site saved = portal.getSite(new SiteId(site[0]));
+            saved.setDisplayName(site[1]);
+            portal.saveSite(saved);
+        }
+        createSite(new SiteId(SiteType.SPACE, "a"), true);
+
+        List<Site> found = portal.findSites(new SiteQuery.Builder()
+                .withSorting(SiteQuery.DISPLAY_NAME, Sorting.Order.ascending).build());
+        assertEquals(Arrays.asList("b", "c", "a"), names(found));
+
+        found = portal.findSites(new SiteQuery.Builder().withSorting(SiteQuery.DISPLAY_NAME, Sorting.Order.descending)
+                .withPagination(1, 1).build());
+        assertEquals(Arrays.asList("c"), names(found));
+
+        found = portal.findSites(new SiteQuery.Builder().withAllSiteTypes()
+                .withSorting(SiteQuery.NAME, Sorting.Order.descending).withPagination(1, 2).build());
+        assertEquals(Arrays.asList("b", "a"), names(found));
+        assertEquals(SiteType.SPACE, found.get(1).getType());
+
+        found = portal.findSites(new SiteQuery.Builder().withAllSiteTypes()
+                .withSorting(SiteQuery.NAME, Sorting.Order.ascending).where(Predicate.in(SiteQuery.NAME, Arrays.asList("a", "c"))).build());
+        assertEquals(Arrays.asList("a", "a", "c"), names(found));
+        assertEquals(SiteType.SITE, found.get(0).getType());
+
+        found = portal.findSites(new SiteQuery.Builder().withAllSiteTypes().descending().withPagination(0, 2).build());
+        assertEquals(SiteType.SPACE, found.get(0).getType());
+        assertEquals("c", found.get(1).getName());
+
+        Site renamed = portal.getSite(new SiteId("a"));
+        renamed.setDisplayName("Beta");
+        portal.saveSite(renamed);
+        portal.removeSite(new SiteId("c"));
+        found = portal.findSites(new SiteQuery.Builder().withSorting(SiteQuery.DISPLAY_NAME, null).build());
+        assertEquals(Arrays.asList("b", "a"), names(found));
+    }
+
+    @Test
+    public void findSites_CustomPropertyNotTranslated() {
+        createSite(new SiteId("a"), true);
+        Site site = portal.getSite(new SiteId("a"));
+        site.setDisplayName("b");
+        portal.saveSite(site);
+        createSite(new SiteId("b"), true);
+
+        // A property named like SiteQuery.NAME but reading the display name is not looked up in the index of names
+        Property<Site> displayedName = new Property<Site>("name") {
+            @Override
+            public Object getValue(Site element) {
+                return element.getDisplayName();
+            }
+        };
+        assertFalse(displayedName.equals(SiteQuery.NAME));
+
+        List<Site> found = portal.findSites(new SiteQuery.Builder().where(Predicate.equalTo(displayedName, "b")).build());
+        assertEquals(Arrays.asList("a"), names(found));
+    }
+
+    @Test
+    public void findSites_FilterAndComparatorCannotModify() {
+        for (String name : new String[] { "a", "b" }) {
+            createSite(new SiteId(name), true);
+        }
+
+        List<Site> found = portal.findSites(new SiteQuery.Builder().withFilter(new Filter<Site>() {
+            @Override
+            public boolean accept(Site site) {
+                site.setDisplayName("Filtered");
+                return true;
+            }
+        }).withSorting(new Sorting<Site>(new Comparator<Site>() {
+            @Override
+            public int compare(Site site1, Site site2) {
+                site1.setDescription("Compared");
+                return site2.getName().compareTo(site1.getName());
+            }
+        })).build());
+
+        assertEquals(Arrays.asList("b", "a"), names(found));
+        for (String name : new String[] { "a", "b" }) {
+            Site site = portal.getSite(new SiteId(name));
+            assertNull(site.getDisplayName());
+            assertNull(site.getDescription());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void findSites_CursorSortedByProperty() {
+        portal.findSites(new SiteQuery.Builder().withSorting(SiteQuery.NAME, Sorting.Order.ascending).build(), null);
+    }
+
+    @Test
+    public void findSites_Cursor() {
+        for (String name : new String[] { "c", "a", "b" }) {
+            createSite(new SiteId(name), true);
+        }
+        SiteQuery query = new SiteQuery.Builder().build();
+
+        Cursor<Site> cursor = portal.findSites(query, null);
+        assertNull(cursor.getContinuationToken());
+        assertEquals("a", cursor.next().getName());
+        String token = cursor.getContinuationToken();
+        cursor.close();
+        assertFalse(cursor.hasNext());
+
+        cursor = portal.findSites(query, token);
+        assertEquals("b", cursor.next().getName());
+        assertEquals("c", cursor.next().getName());
+        assertFalse(cursor.hasNext());
+
+        cursor = portal.findSites(new SiteQuery.Builder().descending().build(), token);
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    public void findSites_KeysetPagination() {
+        for (String name : new String[] { "c", "a", "b" }) {
+            createSite(new SiteId(name), true);
+        }
+
+        SiteQuery query = new SiteQuery.Builder().withKeysetPagination(null, 2).build();
+        assertNull(query.getPagination());
+        List<Site> sites = portal.findSites(query);
+        assertEquals(2, sites.size());
+        assertEquals("b", sites.get(1).getName());
+
+        query = query.nextPage(sites.get(1).getId());
+        assertEquals(new SiteId("b"), query.getKeysetPagination().getAfter());
+        sites = portal.findSites(query);
+        assertEquals(1, sites.size());
+        assertEquals("c", sites.get(0).getName());
+
+        sites = portal.findSites(new SiteQuery.Builder().descending().withPagination(0, 2).build().nextPage(new SiteId("c")));
+        assertEquals(2, sites.size());
+        assertEquals("b", sites.get(0).getName());
+        assertEquals("a", sites.get(1).getName());
+    }
+
+    @Test
+    public void findPages_KeysetPagination() {
+        SiteId classic = createSite(new SiteId("classic"), false);
+        for (String name : new String[] { "c", "a", "b" }) {
+            portal.savePage(portal.createPage(classic.page(name)));
+        }
+
+        PageQuery query = new PageQuery.Builder().withSiteId(classic).withKeysetPagination(classic.page("a"), 1).build();
+        List<Page> pages = portal.findPages(query);
+        assertEquals(1, pages.size());
+        assertEquals(classic.page("b"), pages.get(0).getId());
+        assertEquals(classic.page("c"), portal.findPages(query.nextPage(pages.get(0).getId())).get(0).getId());
+    }
+
+    @Test
+    public void findPages_Cursor() {
+        SiteId classic = createSite(new SiteId("classic"), false);
+        SiteId users = createSite(new SiteId(new Group("platform", "users")), false);
+        for (PageId pageId : new PageId[] { users.page("b"), classic.page("b"), classic.page("a"), users.page("a") }) {
+            portal.savePage(portal.createPage(pageId));
+        }
+
+        Cursor<Page> cursor = portal.findPages(new PageQuery.Builder().build(), null);
+        assertEquals(classic.page("a"), cursor.next().getId());
+        assertEquals(classic.page("b"), cursor.next().getId());
+
+        cursor = portal.findPages(new PageQuery.Builder().build(), cursor.getContinuationToken());
+        assertEquals(users.page("a"), cursor.next().getId());
+        assertEquals(users.page("b"), cursor.next().getId());
+        assertFalse(cursor.hasNext());
+
+        cursor = portal.findPages(new PageQuery.Builder().withSiteId(users).build(), cursor.getContinuationToken());
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void findPages_InvalidToken() {
+        portal.findPages(new PageQuery.Builder().build(), "site:x:classichome");
+    }
+
+    @Test
+    public void findSites_Predicates() {
+        for (String name : new String[] { "intranet", "internet", "acme" }) {
+            createSite(new SiteId(name), true);
+        }
+        Site acme = portal.getSite(new SiteId("acme"));
+        acme.getAttributes().put("theme", "dark");
+        portal.saveSite(acme);
+
+        List<Site> sites = portal.findSites(new SiteQuery.Builder().where(Predicate.startsWith(SiteQuery.NAME, "int")).build());
+        assertEquals(2, sites.size());
+        assertEquals("internet", sites.get(0).getName());
+
+        sites = portal.findSites(new SiteQuery.Builder().where(Predicate.in(SiteQuery.NAME, Arrays.asList("acme", "missing")))
+                .build());
+        assertEquals(1, sites.size());
+
+        sites = portal.findSites(new SiteQuery.Builder().where(Predicate.equalTo(SiteQuery.attribute("theme"), "dark")).build());
+        assertEquals(1, sites.size());
+        assertEquals("acme", sites.get(0).getName());
+
+        sites = portal.findSites(new SiteQuery.Builder().where(Predicate.equalTo(SiteQuery.TYPE, SiteType.SPACE)).build());
+        assertEquals(0, sites.size());
+    }
+
+    @Test
+    public void findPages_Predicates() {
+        SiteId classic = createSite(new SiteId("classic"), false);
+        SiteId users = createSite(new SiteId(new Group("platform", "users")), false);
+        for (PageId pageId : new PageId[] { classic.page("home"), classic.page("help"), users.page("home") }) {
+            Page page = portal.createPage(pageId);
+            page.setAccessPermission(Permission.any("platform", "users"));
+            portal.savePage(page);
+        }
+
+        List<Page> pages = portal.findPages(new PageQuery.Builder().where(Predicate.equalTo(PageQuery.NAME, "home")).build());
+        assertEquals(2, pages.size());
+
+        pages = portal.findPages(new PageQuery.Builder().where(Predicate.startsWith(PageQuery.NAME, "h"))
+                .where(Predicate.equalTo(PageQuery.SITE_TYPE, SiteType.SITE)).build());
+        assertEquals(2, pages.size());
+        assertEquals(classic.page("help"), pages.get(0).getId());
+
+        pages = portal.findPages(new PageQuery.Builder().where(
+                Predicate.equalTo(PageQuery.ACCESS_PERMISSION, Membership.any("platform", "users"))).build());
+        assertEquals(3, pages.size());
+    }
+
+    @Test
+    public void countAndExists() {
+        SiteId classic = createSite(new SiteId("classic"), true);
+        createSite(new SiteId("empty"), false);
+        portal.savePage(portal.createPage(classic.page("home")));
+
+        assertTrue(portal.siteExists(classic));
+        assertFalse(portal.siteExists(new SiteId("missing")));
+        assertTrue(portal.pageExists(classic.page("home")));
+        assertFalse(portal.pageExists(classic.page("missing")));
+        assertFalse(portal.pageExists(new PageId("missing", "home")));
+
+        assertEquals(1, portal.countSites(new SiteQuery.Builder().withPagination(0, 1).build()));
+        assertEquals(2, portal.countSites(new SiteQuery.Builder().includeEmptySites(true).build()));
+        assertEquals(1, portal.countPages(new PageQuery.Builder().withSiteId(classic).build()));
+        assertEquals(0, portal.countPages(new PageQuery.Builder().withSiteType(SiteType.SPACE).build()));
+    }
+
+    @Test
+    public void findSummaries() {
+        SiteId classic = createSite(new SiteId("classic"), true);
+        Page page = portal.createPage(classic.page("home"));
+        page.setDisplayName("Home");
+        portal.savePage(page);
+
+        List<Summary<PageId>> pages = portal.findPageSummaries(new PageQuery.Builder().withSiteId(classic).build());
+        assertEquals(1, pages.size());
+        assertEquals(new Summary<PageId>(classic.page("home"), "Home"), pages.get(0));
+
+        pages = portal.findPageSummaries(new PageQuery.Builder().withProjection(Projection.ID).build());
+        assertEquals(classic.page("home"), pages.get(0).getId());
+        assertNull(pages.get(0).getDisplayName());
+
+        List<Summary<SiteId>> sites = portal.findSiteSummaries(new SiteQuery.Builder().build());
+        assertEquals(1, sites.size());
+        assertEquals(classic, sites.get(0).getId());
+    }
+
+    private static List<String> names(List<Site> sites) {
+        List<String> names = new ArrayList<String>();
+        for (Site site : sites) {
+            names.add(site.getName());
+        }
+        return names;
+    }
+
+    private SiteId createSite(SiteId siteId, boolean withNavigation) {
+        portal.saveSite(portal.createSite(siteId));
+        if (withNavigation) {
+            Navigation navigation = portal.getNavigation(siteId);
+            Node root = navigation.getRootNode(Nodes.visitChildren());
+            root.addChild("home");
+            navigation.saveNode(root);
+        }
+        return siteId;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.gatein.api.EntityAlreadyExistsException;
+import org.gatein.api.EntityNotFoundException;
+import org.gatein.api.page.Page;
+import org.gatein.api.page.PageId;
+import org.gatein.api.page.PageQuery;
+import org.gatein.api.security.Group;
+import org.gatein.api.security.Membership;
+import org.gatein.api.security.Permission;
+import org.gatein.api.security.User;
+import org.gatein.api.site.Site;
+import org.gatein.api.site.SiteId;
+import org.gatein.api.site.SiteType;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryPortalTest {
+    private InMemoryPortal portal;
+
+    @Before
+    public void before() {
+        portal = new InMemoryPortal();
+    }
+
+    @Test
+    public void site() {
+        SiteId siteId = new SiteId("classic");
+        assertNull(portal.getSite(siteId));
+
+        Site site = portal.createSite(siteId);
+        site.setDisplayName("Classic");
+        assertNull(portal.getSite(siteId));
+
+        portal.saveSite(site);
+        assertEquals("Classic", portal.getSite(siteId).getDisplayName());
+
+        site.setDisplayName("Changed");
+        assertEquals("Classic", portal.getSite(siteId).getDisplayName());
+
+        assertTrue(portal.removeSite(siteId));
+        assertFalse(portal.removeSite(siteId));
+        assertNull(portal.getSite(siteId));
+    }
+
+    @Test(expected = EntityAlreadyExistsException.class)
+    public void createSite_AlreadyExists() {
+        portal.saveSite(portal.createSite(new SiteId("classic")));
+        portal.createSite(new SiteId("classic"));
+    }
+
+    @Test
+    public void createSite_SaveTwice() {
+        Site site = portal.createSite(new SiteId("classic"));
+        portal.saveSite(site);
+        site.setDisplayName("Classic");
+        portal.saveSite(site);
+        assertEquals("Classic", portal.getSite(new SiteId("classic")).getDisplayName());
+
+        Site first = portal.createSite(new SiteId("other"));
+        Site second = portal.createSite(new SiteId("other"));
+        portal.saveSite(first);
+        try {
+            portal.saveSite(second);
+            fail();
+        } catch (EntityAlreadyExistsException e) {
+        }
+    }
+
+    @Test
+    public void createPage_SaveTwice() {
+        portal.saveSite(portal.createSite(new SiteId("classic")));
+        Page page = portal.createPage(new PageId("classic", "home"));
+        portal.savePage(page);
+        page.setDisplayName("Home");
+        portal.savePage(page);
+        assertEquals("Home", portal.getPage(new PageId("classic", "home")).getDisplayName());
+    }
+
+    @Test
+    public void page() {
+        SiteId siteId = createSite(new SiteId("classic"));
+        PageId pageId = siteId.page("home");
+
+        Page page = portal.createPage(pageId);
+        page.setDisplayName("Home");
+        portal.savePage(page);
+
+        assertEquals("Home", portal.getPage(pageId).getDisplayName());
+        assertNull(portal.getPage(siteId.page("missing")));
+
+        List<Page> pages = portal.findPages(new PageQuery.Builder().withSiteId(siteId).build());
+        assertEquals(1, pages.size());
+        assertEquals(pageId, pages.get(0).getId());
+        assertEquals(0, portal.findPages(new PageQuery.Builder().withSiteType(SiteType.SPACE).build()).size());
+
+        assertTrue(portal.removePage(pageId));
+        assertNull(portal.getPage(pageId));
+    }
+
+    @Test
+    public void getSitesAndPages() {
+        SiteId classic = createSite(new SiteId("classic"));
+        SiteId missing = new SiteId("missing");
+        Page home = portal.createPage(classic.page("home"));
+        portal.savePage(home);
+
+        Map<SiteId, Site> sites = portal.getSites(Arrays.asList(missing, classic));
+        assertEquals(1, sites.size());
+        assertEquals(classic, sites.get(classic).getId());
+
+        Map<PageId, Page> pages = portal.getPages(Arrays.asList(classic.page("home"), classic.page("missing")));
+        assertEquals(1, pages.size());
+        assertEquals(home.getId(), pages.get(classic.page("home")).getId());
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void getPages_SiteNotFound() {
+        portal.getPages(Arrays.asList(new PageId("missing", "home")));
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void getPage_SiteNotFound() {
+        portal.getPage(new PageId("missing", "home"));
+    }
+
+    @Test
+    public void hasPermission() {
+        User user = new User("john");
+        portal.addMembership(user, new Membership("manager", new Group("platform", "administrators")));
+
+        assertTrue(portal.hasPermission(user, Permission.everyone()));
+        assertTrue(portal.hasPermission(user, Permission.any("platform", "administrators")));
+        assertTrue(portal.hasPermission(user, new Permission("manager", new Group("platform", "administrators"))));
+        assertTrue(portal.hasPermission(user, new Permission(user)));
+        assertFalse(portal.hasPermission(user, new Permission("member", new Group("platform", "administrators"))));
+        assertFalse(portal.hasPermission(user, Permission.any("platform", "users")));
+        assertFalse(portal.hasPermission(User.anonymous(), Permission.any("platform", "administrators")));
+    }
+
+    @Test
+    public void hasPermission_MembershipsChanged() {
+        User user = new User("john");
+        Permission permission = Permission.any("platform", "administrators");
+        assertFalse(portal.hasPermission(user, permission));
+
+        portal.addMembership(user, Membership.any("platform", "administrators"));
+        assertTrue(portal.hasPermission(user, permission));
+
+        portal.removeMemberships(user);
+        assertFalse(portal.hasPermission(user, permission));
+    }
+
+    private SiteId createSite(SiteId siteId) {
+        portal.saveSite(portal.createSite(siteId));
+        return siteId;
+    }
+}
@@ -24,7 +24,9 @@ package org.gatein.api.navigation;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -36,6 +38,35 @@ public class NodePathTest {
         assertArrayEquals(new String[] {}, NodePath.fromString("/").asArray());
         assertArrayEquals(new String[] { "one" }, NodePath.fromString("/one").asArray());
         assertArrayEquals(new String[] { "one", "two" }, NodePath.fromString("/one/two").asArray());
+        assertArrayEquals(new String[] { "one", "two" }, NodePath.fromString("one/two").asArray());
+        assertArrayEquals(new String[] { "one", "two" }, NodePath.fromString("//one// two /").asArray());
+        assertArrayEquals(new String[] {}, NodePath.fromString("").asArray());
+        assertArrayEquals(new String[] {}, NodePath.fromString("/ /").asArray());
+        assertEquals(NodePath.root(), NodePath.fromString("/"));
+        assertEquals(NodePath.path("one", "two"), NodePath.fromString("/one/two"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromString_Null() {
+        NodePath.fromString(null);
+    }
+
+    @Test
+    public void cache() {
+        NodePathCache cache = new NodePathCache(16);
+        NodePath path = cache.fromString("/one/two");
+
+        assertEquals(NodePath.path("one", "two"), path);
+        assertSame(path, cache.fromString("/one/two"));
+
+        cache.clear();
+        assertNotSame(path, cache.fromString("/one/two"));
+    }
+
+    @Test
+    public void append() {
+        assertEquals(NodePath.path("one", "two", "three"), NodePath.path("one").append("two", "three"));
+        assertEquals(NodePath.path("one", "two"), NodePath.root().append(NodePath.path("one", "two")));
     }
 
     @Test
@@ -61,6 +92,56 @@ public class NodePathTest {
         assertArrayEquals(new String[] { "two" }, NodePath.path("one", "two", "three").subPath(1, 2).asArray());
     }
 
+    @Test
+    public void equalsAndHashCode() {
+        NodePath path = NodePath.fromString("/one/two");
+        assertEquals(NodePath.path("one", "two"), path);
+        assertEquals(NodePath.path("one").append("two"), path);
+        assertEquals(NodePath.path("one", "two", "three").parent(), path);
+        assertEquals(NodePath.path("one", "two").hashCode(), path.hashCode());
+        assertEquals(path.asList().hashCode(), path.hashCode());
+        assertFalse(NodePath.path("one", "three").equals(path));
+        assertFalse(NodePath.path("two", "one").equals(path));
+    }
+
+    @Test
+    public void segments() {
+        NodePath path = NodePath.path("one", "two", "three");
+        assertEquals("one", path.getSegment(0));
+        assertEquals("three", path.getSegment(2));
+        assertEquals("three", path.getLastSegment());
+        assertNull(NodePath.root().getLastSegment());
+        assertEquals(3, path.size());
+        assertSame(path.parent(), path.subPath(0, 2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getSegment_OutOfRange() {
+        NodePath.path("one").getSegment(1);
+    }
+
+    @Test
+    public void compareTo() {
+        assertTrue(NodePath.path("a", "b").compareTo(NodePath.path("a", "c")) < 0);
+        assertTrue(NodePath.path("a", "b").compareTo(NodePath.path("a")) > 0);
+        assertTrue(NodePath.path("b").compareTo(NodePath.path("a", "z")) > 0);
+        assertEquals(0, NodePath.path("a", "b").compareTo(NodePath.fromString("/a/b")));
+    }
+
+    @Test
+    public void deepPath() {
+        NodePath path = NodePath.root();
+        for (int i = 0; i < 100000; i++) {
+            path = path.append("s" + i);
+        }
+        NodePath other = NodePath.path("s0").append(path.subPath(1));
+
+        assertEquals(path, other);
+        assertEquals(0, path.compareTo(other));
+        assertEquals("s99999", path.getSegment(99999));
+        assertTrue(path.toString().endsWith("/s99998/s99999"));
+    }
+
     @Test
     public void toString_() {
         assertEquals("/", NodePath.root().toString());
@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.navigation;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.gatein.api.page.PageId;
+import org.junit.Test;
+
+public class NodesTest {
+
+    @Test
+    public void and() {
+        NodeVisitor visitor = Nodes.and(Nodes.visitAll(), Nodes.visitVisible());
+
+        assertTrue(visitor.visit(0, null, null));
+        assertTrue(visitor.visit(3, "c", details("/a/b/c", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(3, "c", details("/a/b/c", Visibility.Status.HIDDEN, null)));
+
+        assertSame(Nodes.visitNone(), Nodes.and(Nodes.visitVisible(), Nodes.visitNone()));
+        assertSame(Nodes.visitChildren(), Nodes.and(Nodes.visitAll(), Nodes.visitNodes(3), Nodes.visitChildren()));
+        assertSame(Nodes.visitVisible(), Nodes.and(Nodes.visitAll(), Nodes.visitVisible()));
+    }
+
+    @Test
+    public void or() {
+        NodeVisitor visitor = Nodes.or(Nodes.visitChildren(), Nodes.visitWithPage());
+
+        assertTrue(visitor.visit(0, null, null));
+        assertFalse(visitor.visit(1, "a", details("/a", Visibility.Status.VISIBLE, null)));
+        assertTrue(visitor.visit(2, "b", details("/a/b", Visibility.Status.VISIBLE, new PageId("classic", "b"))));
+        assertFalse(visitor.visit(2, "b", details("/a/b", Visibility.Status.VISIBLE, null)));
+
+        assertSame(Nodes.visitAll(), Nodes.or(Nodes.visitWithPage(), Nodes.visitAll()));
+        assertSame(Nodes.visitWithPage(), Nodes.or(Nodes.visitNone(), Nodes.visitWithPage()));
+    }
+
+    @Test
+    public void not() {
+        NodeVisitor visitor = Nodes.not(Nodes.visitWithPage());
+
+        assertTrue(visitor.visit(0, null, null));
+        assertTrue(visitor.visit(1, "a", details("/a", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(1, "a", details("/a", Visibility.Status.VISIBLE, new PageId("classic", "a"))));
+
+        // Not always visits the root, so negating twice is not the same as the visitor itself
+        assertTrue(Nodes.not(Nodes.not(Nodes.visitNone())).visit(0, null, null));
+    }
+
+    @Test
+    public void visitPaths() {
+        NodeVisitor visitor = Nodes.visitPaths(Arrays.asList(NodePath.fromString("/a/x"), NodePath.fromString("/b/y")));
+
+        assertTrue(visitor.visit(0, null, null));
+        assertTrue(visitor.visit(1, "a", details("/a", Visibility.Status.VISIBLE, null)));
+        assertTrue(visitor.visit(1, "b", details("/b", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(1, "c", details("/c", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(2, "x", details("/a/x", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(2, "y", details("/a/y", Visibility.Status.VISIBLE, null)));
+
+        visitor = Nodes.visitPaths(Collections.singleton(NodePath.fromString("/a")), Nodes.visitChildren());
+        assertTrue(visitor.visit(1, "a", details("/a", Visibility.Status.VISIBLE, null)));
+        assertTrue(visitor.visit(0, null, null));
+        assertFalse(visitor.visit(2, "x", details("/a/x", Visibility.Status.VISIBLE, null)));
+
+        assertSame(Nodes.visitNone(), Nodes.visitPaths(Collections.<NodePath> emptyList()));
+    }
+
+    @Test
+    public void visitPaths_Prefix() {
+        NodeVisitor visitor = Nodes.visitPaths(Arrays.asList(NodePath.fromString("/a"), NodePath.fromString("/a/b")),
+                Nodes.visitAll());
+
+        assertTrue(visitor.visit(1, "a", details("/a", Visibility.Status.VISIBLE, null)));
+        assertTrue(visitor.visit(2, "b", details("/a/b", Visibility.Status.VISIBLE, null)));
+        assertTrue(visitor.visit(2, "c", details("/a/c", Visibility.Status.VISIBLE, null)));
+        assertTrue(visitor.visit(3, "d", details("/a/b/d", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(1, "x", details("/x", Visibility.Status.VISIBLE, null)));
+
+        visitor = Nodes.visitPaths(Arrays.asList(NodePath.fromString("/a"), NodePath.fromString("/a/b/c")),
+                Nodes.visitChildren());
+        assertTrue(visitor.visit(2, "b", details("/a/b", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(2, "x", details("/a/x", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(3, "x", details("/a/b/x", Visibility.Status.VISIBLE, null)));
+    }
+
+    @Test
+    public void visitPaths_NonRoot() {
+        // The paths are relative to the node the visit starts from
+        NodeVisitor visitor = Nodes.visitNodes(NodePath.fromString("/p"),
+                Nodes.visitPaths(Collections.singleton(NodePath.fromString("/a/b")), Nodes.visitChildren()));
+
+        assertTrue(visitor.visit(0, null, null));
+        assertTrue(visitor.visit(1, "p", details("/p", Visibility.Status.VISIBLE, null)));
+        assertTrue(visitor.visit(2, "a", details("/p/a", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(2, "x", details("/p/x", Visibility.Status.VISIBLE, null)));
+        assertTrue(visitor.visit(3, "b", details("/p/a/b", Visibility.Status.VISIBLE, null)));
+        assertFalse(visitor.visit(4, "c", details("/p/a/b/c", Visibility.Status.VISIBLE, null)));
+
+        // Nodes without details cannot be matched, so they are not loaded
+        assertFalse(visitor.visit(2, "a", null));
+    }
+
+    @Test
+    public void isLoadOnDemand() {
+        assertTrue(Nodes.isLoadOnDemand(Nodes.and(Nodes.loadOnDemand(Nodes.visitChildren()), Nodes.visitVisible())));
+        assertTrue(Nodes.isLoadOnDemand(Nodes.or(Nodes.visitWithPage(), Nodes.loadOnDemand(Nodes.visitVisible()))));
+        assertTrue(Nodes.isLoadOnDemand(Nodes.not(Nodes.loadOnDemand(Nodes.visitVisible()))));
+        assertTrue(Nodes.isLoadOnDemand(Nodes.visitPaths(Collections.singleton(NodePath.fromString("/a")),
+                Nodes.loadOnDemand(Nodes.visitChildren()))));
+        assertTrue(Nodes.isLoadOnDemand(Nodes.and(Nodes.loadOnDemand(Nodes.visitVisible()), Nodes.visitNone())));
+        assertFalse(Nodes.isLoadOnDemand(Nodes.and(Nodes.visitChildren(), Nodes.visitVisible())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void visitPaths_NullPath() {
+        Nodes.visitPaths(Arrays.asList(NodePath.root(), null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void and_Empty() {
+        Nodes.and();
+    }
+
+    private static NodeVisitor.NodeDetails details(final String path, final Visibility.Status status, final PageId pageId) {
+        return new NodeVisitor.NodeDetails() {
+            @Override
+            public Visibility getVisibility() {
+                return new Visibility(status);
+            }
+
+            @Override
+            public String getIconName() {
+                return null;
+            }
+
+            @Override
+            public PageId getPageId() {
+                return pageId;
+            }
+
+            @Override
+            public NodePath getNodePath() {
+                return NodePath.fromString(path);
+            }
+        };
+    }
+}
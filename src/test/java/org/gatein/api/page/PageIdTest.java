@@ -87,4 +87,17 @@ public class PageIdTest {
         assertEquals(id, PageId.fromString(String.format("%s", id).toString()));
         assertEquals(id, PageId.fromString(String.format("%#s", id).toString()));
     }
+
+    @Test
+    public void testToString() {
+        PageId id = new PageId(new Group("foo", "bar"), "baz");
+        assertEquals("Page.Id[siteId=[type=space, name=/foo/bar], pageName=baz]", id.toString());
+        assertEquals("siteId=[type=space, name=/foo/bar], pageName=baz", String.format("%s", id));
+        assertEquals("space.~foo~bar.baz", String.format("%#s", id));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromString_InvalidSyntax() {
+        PageId.fromString("foo");
+    }
 }
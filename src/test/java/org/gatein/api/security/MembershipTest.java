@@ -22,7 +22,9 @@
 package org.gatein.api.security;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -43,6 +45,22 @@ public class MembershipTest {
         assertEquals("*:/platform/administrators", Membership.any("platform", "administrators").toString());
     }
 
+    @Test
+    public void equals() {
+        assertEquals(Membership.fromString("member:/platform/administrators"),
+                new Membership("member", new Group("platform", "administrators")));
+        assertEquals(Membership.fromString("user"), new Membership(new User("user")));
+        assertFalse(Membership.fromString("user").equals(Membership.fromString("user:/platform")));
+    }
+
+    @Test
+    public void of() {
+        Membership membership = Membership.of("member", new Group("platform", "administrators"));
+        assertSame(membership, Membership.of("member", new Group("/platform/administrators")));
+        assertSame(Group.of("platform", "administrators"), membership.getGroup());
+        assertSame(Membership.of(new User("user")), Membership.of(new User("user")));
+    }
+
     public static void assertMembership(String expectedType, String expectedGroup, Membership actual) {
         if (expectedGroup == null) {
             assertNull(actual.getGroup());
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PermissionCacheTest {
+    private final User john = new User("john");
+    private final Permission permission = Permission.any("platform", "users");
+
+    @Test
+    public void getAndPut() {
+        PermissionCache cache = new PermissionCache(100, 1, TimeUnit.MINUTES);
+        assertNull(cache.get(john, permission));
+
+        cache.put(john, permission, true, cache.getGeneration());
+        assertEquals(Boolean.TRUE, cache.get(john, permission));
+        assertNull(cache.get(new User("mary"), permission));
+        assertNull(cache.get(john, Permission.any("platform", "users")));
+    }
+
+    @Test
+    public void put_Invalidated() {
+        PermissionCache cache = new PermissionCache(100, 1, TimeUnit.MINUTES);
+        long generation = cache.getGeneration();
+        cache.invalidate(john);
+
+        cache.put(john, permission, true, generation);
+        assertNull(cache.get(john, permission));
+    }
+
+    @Test
+    public void invalidate() {
+        PermissionCache cache = new PermissionCache(100, 1, TimeUnit.MINUTES);
+        User mary = new User("mary");
+        cache.put(john, permission, true, cache.getGeneration());
+        cache.put(mary, permission, false, cache.getGeneration());
+
+        cache.invalidate(john);
+        assertNull(cache.get(john, permission));
+        assertEquals(Boolean.FALSE, cache.get(mary, permission));
+
+        cache.invalidate(permission);
+        assertNull(cache.get(mary, permission));
+    }
+
+    @Test
+    public void evict() {
+        PermissionCache cache = new PermissionCache(16, 1, TimeUnit.MINUTES);
+        cache.put(john, permission, true, cache.getGeneration());
+        for (int i = 0; i < 1000; i++) {
+            cache.put(new User("user" + i), permission, true, cache.getGeneration());
+        }
+        assertNull(cache.get(john, permission));
+    }
+
+    @Test
+    public void expire() throws Exception {
+        PermissionCache cache = new PermissionCache(100, 1, TimeUnit.NANOSECONDS);
+        cache.put(john, permission, true, cache.getGeneration());
+        Thread.sleep(1);
+        assertNull(cache.get(john, permission));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSize() {
+        new PermissionCache(0, 1, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.api.security;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.gatein.api.security.PermissionEvaluator.MembershipSnapshot;
+import org.junit.Test;
+
+public class PermissionEvaluatorTest {
+    private final PermissionEvaluator evaluator = new PermissionEvaluator();
+
+    @Test
+    public void everyone() {
+        assertTrue(evaluator.hasPermission(snapshot(User.anonymous()), Permission.everyone()));
+        assertTrue(evaluator.hasPermission(snapshot(new User("john")), Permission.everyone()));
+        assertFalse(evaluator.hasPermission(snapshot(User.anonymous()), Permission.any("platform", "users")));
+    }
+
+    @Test
+    public void user() {
+        Permission permission = new Permission(new User("john"));
+        assertTrue(evaluator.hasPermission(snapshot(new User("john")), permission));
+        assertFalse(evaluator.hasPermission(snapshot(new User("mary")), permission));
+    }
+
+    @Test
+    public void membership() {
+        MembershipSnapshot john = snapshot(new User("john"), "member:/platform/users", "manager:/organization");
+
+        assertTrue(john.hasPermission(Permission.any("platform", "users")));
+        assertTrue(john.hasPermission(new Permission("member", new Group("platform", "users"))));
+        assertFalse(john.hasPermission(new Permission("manager", new Group("platform", "users"))));
+        assertFalse(john.hasPermission(Permission.any("platform", "administrators")));
+        assertTrue(john.hasPermission(Permission.any("platform", "administrators").addMembership(
+                Membership.fromString("manager:/organization"))));
+    }
+
+    @Test
+    public void with() {
+        MembershipSnapshot john = snapshot(new User("john"));
+        MembershipSnapshot admin = john.with(Membership.any("platform", "administrators"));
+
+        assertFalse(john.hasPermission(Permission.any("platform", "administrators")));
+        assertTrue(admin.hasPermission(Permission.any("platform", "administrators")));
+    }
+
+    @Test
+    public void compile_Cached() {
+        Permission permission = Permission.any("platform", "users");
+        assertSame(evaluator.compile(permission), evaluator.compile(permission));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentEvaluators() {
+        new PermissionEvaluator().compile(Permission.everyone()).matches(snapshot(new User("john")));
+    }
+
+    private MembershipSnapshot snapshot(User user, String... memberships) {
+        Membership[] parsed = new Membership[memberships.length];
+        for (int i = 0; i < memberships.length; i++) {
+            parsed[i] = Membership.fromString(memberships[i]);
+        }
+        return evaluator.snapshot(user, Arrays.asList(parsed));
+    }
+}
@@ -25,6 +25,7 @@ package org.gatein.api.site;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.regex.Pattern;
@@ -114,4 +115,35 @@ public class SiteIdTest {
         assertEquals(id, SiteId.fromString(String.format("%s", id).toString()));
         assertEquals(id, SiteId.fromString(String.format("%#s", id).toString()));
     }
+
+    @Test
+    public void testToString() {
+        SiteId id = new SiteId(new Group("foo", "bar"));
+        assertEquals("Site.Id[type=space, name=/foo/bar]", id.toString());
+        assertEquals("space.~foo~bar", String.format("%#s", id));
+        assertEquals("[space.~foo~bar]", String.format("[%#s]", id));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromString_InvalidName() {
+        SiteId.fromString("type=site, name=foo bar");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromString_InvalidType() {
+        SiteId.fromString("foo.bar");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromString_UnknownType() {
+        SiteId.fromString("portal.bar");
+    }
+
+    @Test
+    public void testOf() {
+        assertSame(SiteId.of("foo"), SiteId.of(SiteType.SITE, "foo"));
+        assertSame(SiteId.of(new Group("foo", "bar")), SiteId.of(SiteType.SPACE, "/foo/bar"));
+        assertEquals(new SiteId("foo"), SiteId.of("foo"));
+        assertFalse(SiteId.of("foo").equals(SiteId.of(new User("foo"))));
+    }
 }